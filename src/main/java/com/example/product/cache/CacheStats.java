@@ -0,0 +1,60 @@
+package com.example.product.cache;
+
+/**
+ * 缓存统计信息
+ */
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+    private final int maxEntries;
+    
+    public CacheStats(long hits, long misses, long evictions, long invalidations, int size, int maxEntries) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.maxEntries = maxEntries;
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * 因容量不足被淘汰的条目数
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+    
+    /**
+     * 因数据版本变化而整体清空的次数
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+    
+    /**
+     * 命中率
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
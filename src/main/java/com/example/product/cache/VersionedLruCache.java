@@ -0,0 +1,100 @@
+package com.example.product.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 带版本标记的LRU缓存
+ * 整个缓存对应一个数据版本，出现更新的版本后第一次访问时清空缓存；
+ * 读取旧版本的调用方（线程读到快照的顺序与访问缓存的顺序不一定一致）既不读取也不放入缓存，
+ * 不会清空新版本的缓存，也不会得到新版本的结果
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class VersionedLruCache<K, V> {
+    
+    private final int maxEntries;
+    
+    private final LinkedHashMap<K, V> entries;
+    
+    // 缓存内容对应的数据版本
+    private long version = -1;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    
+    /**
+     * 构造函数
+     * @param maxEntries 最大条目数，0表示不缓存
+     */
+    public VersionedLruCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > VersionedLruCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * 查询缓存
+     * @param key 键
+     * @param currentVersion 调用方读取的数据版本
+     * @return 缓存的值，不存在、已过期或调用方的版本比缓存旧时返回null
+     */
+    public synchronized V get(K key, long currentVersion) {
+        if (currentVersion < version) {
+            misses++;
+            return null;
+        }
+        if (currentVersion > version) {
+            invalidate(currentVersion);
+        }
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+    
+    /**
+     * 放入缓存
+     * @param key 键
+     * @param computedVersion 计算该值时读取的数据版本
+     * @param value 值
+     */
+    public synchronized void put(K key, long computedVersion, V value) {
+        if (maxEntries == 0 || computedVersion < version) {
+            return;
+        }
+        if (computedVersion > version) {
+            invalidate(computedVersion);
+        }
+        entries.put(key, value);
+    }
+    
+    private void invalidate(long newVersion) {
+        if (!entries.isEmpty()) {
+            invalidations++;
+            entries.clear();
+        }
+        version = newVersion;
+    }
+    
+    /**
+     * 统计信息快照
+     * @return 统计信息
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, invalidations, entries.size(), maxEntries);
+    }
+}
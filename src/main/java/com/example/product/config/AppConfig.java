@@ -1,8 +1,11 @@
 package com.example.product.config;
 
+import com.example.product.persistence.PersistenceOptions;
 import com.example.product.service.ExcelExportService;
 import com.example.product.service.ExcelImportService;
 import com.example.product.service.ProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,30 +16,54 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class AppConfig {
     
+    /**
+     * 配置持久化选项，绑定 product.persistence.* 属性
+     * @return PersistenceOptions实例
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "product.persistence")
+    public PersistenceOptions persistenceOptions() {
+        return new PersistenceOptions();
+    }
+    
     /**
      * 配置ProductService Bean
+     * @param persistenceOptions 持久化选项
+     * @param searchCacheSize 缓存的查询数，0表示不缓存
+     * @param columnar 是否维护列式存储
      * @return ProductService实例
      */
     @Bean
-    public ProductService productService() {
-        return new ProductService();
+    public ProductService productService(PersistenceOptions persistenceOptions,
+                                         @Value("${product.search-cache.max-entries:1024}") int searchCacheSize,
+                                         @Value("${product.columnar-store.enabled:false}") boolean columnar) {
+        return new ProductService(persistenceOptions, searchCacheSize, columnar);
     }
     
     /**
      * 配置ExcelImportService Bean
+     * @param productService 产品服务
+     * @param chunkSize 导入时每批提交的产品数
+     * @param validatorThreads 导入时并行验证的线程数，0表示使用CPU核数
      * @return ExcelImportService实例
      */
     @Bean
-    public ExcelImportService excelImportService() {
-        return new ExcelImportService(productService());
+    public ExcelImportService excelImportService(ProductService productService,
+                                                 @Value("${product.import.chunk-size:1000}") int chunkSize,
+                                                 @Value("${product.import.validator-threads:0}") int validatorThreads) {
+        if (validatorThreads <= 0) {
+            validatorThreads = Runtime.getRuntime().availableProcessors();
+        }
+        return new ExcelImportService(productService, chunkSize, validatorThreads);
     }
     
     /**
      * 配置ExcelExportService Bean
+     * @param productService 产品服务
      * @return ExcelExportService实例
      */
     @Bean
-    public ExcelExportService excelExportService() {
-        return new ExcelExportService(productService());
+    public ExcelExportService excelExportService(ProductService productService) {
+        return new ExcelExportService(productService);
     }
-}
\ No newline at end of file
+}
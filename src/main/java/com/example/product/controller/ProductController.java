@@ -1,17 +1,38 @@
 package com.example.product.controller;
 
+import com.example.product.cache.CacheStats;
+import com.example.product.index.QueryPlan;
+import com.example.product.index.SortKey;
 import com.example.product.model.Product;
+import com.example.product.model.ProductPage;
+import com.example.product.model.ProductStats;
+import com.example.product.persistence.Durability;
+import com.example.product.persistence.PersistenceException;
 import com.example.product.service.ProductService;
 import com.example.product.service.ExcelImportService;
 import com.example.product.service.ExcelExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * 产品管理控制器
@@ -30,14 +51,26 @@ public class ProductController {
     @Autowired
     private ExcelExportService excelExportService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    private static final String EXCEL_CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    
     /**
      * 添加产品
      * @param product 产品对象
+     * @param durability 持久化级别（可选，默认使用配置值）
      * @return 添加结果
      */
     @PostMapping
-    public ResponseEntity<String> addProduct(@RequestBody Product product) {
-        boolean result = productService.addProduct(product);
+    public ResponseEntity<String> addProduct(@RequestBody Product product,
+                                             @RequestParam(required = false) Durability durability) {
+        boolean result = durability != null
+                ? productService.addProduct(product, durability)
+                : productService.addProduct(product);
         if (result) {
             return ResponseEntity.ok("产品添加成功");
         } else {
@@ -47,11 +80,17 @@ public class ProductController {
     
     /**
      * 根据ID获取产品
+     * ETag 由产品版本号生成，未修改时返回304且不序列化产品
      * @param id 产品ID
+     * @param request 当前请求
      * @return 产品对象
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
+    public ResponseEntity<Product> getProductById(@PathVariable String id, WebRequest request) {
+        long version = productService.getProductVersion(id);
+        if (version >= 0 && request.checkNotModified("\"" + version + "\"")) {
+            return null;
+        }
         Product product = productService.getProductById(id);
         if (product != null) {
             return ResponseEntity.ok(product);
@@ -62,27 +101,94 @@ public class ProductController {
     
     /**
      * 更新产品
+     * 请求体带有 version 时按版本号条件更新，版本号不一致返回412
      * @param product 产品对象
+     * @param durability 持久化级别（可选，默认使用配置值）
      * @return 更新结果
      */
     @PutMapping
-    public ResponseEntity<String> updateProduct(@RequestBody Product product) {
-        boolean result = productService.updateProduct(product);
-        if (result) {
+    public ResponseEntity<String> updateProduct(@RequestBody Product product,
+                                                @RequestParam(required = false) Durability durability) {
+        ProductService.UpdateResult result = productService.updateProduct(product, product.getVersion(), durability);
+        if (result.isUpdated()) {
             return ResponseEntity.ok("产品更新成功");
+        } else if (result.getStatus() == ProductService.UpdateResult.Status.VERSION_CONFLICT) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("产品更新失败，" + result.getErrors().get(0));
         } else {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("产品更新失败");
         }
     }
     
+    /**
+     * 替换产品（条件更新）
+     * 期望的版本号取自 If-Match 头（即 GET 返回的 ETag），没有时取请求体中的 version；两者都没有时无条件更新
+     * @param id 产品ID
+     * @param product 产品对象，ID可以省略
+     * @param ifMatch If-Match 头
+     * @param durability 持久化级别（可选，默认使用配置值）
+     * @return 成功时返回新版本的产品和新的 ETag；版本号不一致返回412
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<Object> replaceProduct(@PathVariable String id,
+                                                 @RequestBody Product product,
+                                                 @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                                 @RequestParam(required = false) Durability durability) {
+        if (product.getId() == null) {
+            product.setId(id);
+        } else if (!product.getId().equals(id)) {
+            return error(HttpStatus.BAD_REQUEST, "请求体中的产品ID与路径不一致");
+        }
+        Long expectedVersion;
+        try {
+            expectedVersion = ifMatch != null ? parseIfMatch(ifMatch) : product.getVersion();
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return toResponse(productService.updateProduct(product, expectedVersion,
+                durability));
+    }
+    
+    /**
+     * 按字段修改产品，请求体只需包含要修改的字段
+     * 期望的版本号取自 If-Match 头，没有时取请求体中的 version；两者都没有时无条件修改
+     * @param id 产品ID
+     * @param fields 要修改的字段
+     * @param ifMatch If-Match 头
+     * @param durability 持久化级别（可选，默认使用配置值）
+     * @return 成功时返回新版本的产品和新的 ETag；版本号不一致返回412，字段无效返回400
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Object> patchProduct(@PathVariable String id,
+                                               @RequestBody Map<String, Object> fields,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                               @RequestParam(required = false) Durability durability) {
+        Long expectedVersion;
+        try {
+            if (ifMatch != null) {
+                expectedVersion = parseIfMatch(ifMatch);
+            } else {
+                Object version = fields.get("version");
+                expectedVersion = version != null ? Long.valueOf(String.valueOf(version)) : null;
+            }
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, "版本号无效: " + e.getMessage());
+        }
+        return toResponse(productService.patchProduct(id, fields, expectedVersion,
+                durability));
+    }
+    
     /**
      * 删除产品
      * @param id 产品ID
+     * @param durability 持久化级别（可选，默认使用配置值）
      * @return 删除结果
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteProduct(@PathVariable String id) {
-        boolean result = productService.deleteProduct(id);
+    public ResponseEntity<String> deleteProduct(@PathVariable String id,
+                                                @RequestParam(required = false) Durability durability) {
+        boolean result = durability != null
+                ? productService.deleteProduct(id, durability)
+                : productService.deleteProduct(id);
         if (result) {
             return ResponseEntity.ok("产品删除成功");
         } else {
@@ -92,63 +198,316 @@ public class ProductController {
     
     /**
      * 获取所有产品
+     * @param request 当前请求
      * @return 产品列表
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<Product>> getAllProducts(WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
         List<Product> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
     }
     
+    /**
+     * 流式获取所有产品（指定 stream 时使用）
+     * 边遍历边写入响应，不生成完整列表，每个请求占用的内存与产品数量无关
+     * @param stream 响应格式：json（JSON数组）或 ndjson（每行一个产品）
+     * @param request 当前请求
+     * @return 流式响应
+     */
+    @GetMapping(params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(@RequestParam String stream, WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        QueryPlan plan = productService.planSearch(null, null, null, null);
+        return streamProducts(() -> productService.streamProducts(plan), stream);
+    }
+    
+    /**
+     * 分页获取产品（指定 limit 时使用）
+     * @param limit 每页数量
+     * @param cursor 上一页返回的 nextCursor，不传表示第一页
+     * @param sort 排序字段：id 或 price
+     * @param order 排序方向：asc 或 desc
+     * @param request 当前请求
+     * @return 一页产品和下一页游标
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<ProductPage> getProductsPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(productService.listProducts(limit, cursor, SortKey.parse(sort), "desc".equalsIgnoreCase(order)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * 根据条件查询产品
+     * 响应头 X-Query-Plan 给出本次查询使用的计划
      * @param name 产品名称（模糊匹配）
      * @param category 产品分类
      * @param minPrice 最低价格
      * @param maxPrice 最高价格
+     * @param request 当前请求
      * @return 符合条件的产品列表
      */
     @GetMapping("/search")
     public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        QueryPlan plan = productService.planSearch(name, category, minPrice, maxPrice);
+        List<Product> products = productService.searchProducts(plan);
+        return ResponseEntity.ok().header("X-Query-Plan", plan.getSummary()).body(products);
+    }
+    
+    /**
+     * 流式查询产品（指定 stream 时使用）
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @param stream 响应格式：json（JSON数组）或 ndjson（每行一个产品）
+     * @param request 当前请求
+     * @return 流式响应
+     */
+    @GetMapping(value = "/search", params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamSearchProducts(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam String stream,
+            WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        QueryPlan plan = productService.planSearch(name, category, minPrice, maxPrice);
+        // 产品在写入响应时才逐个取出和校验
+        ResponseEntity<StreamingResponseBody> response = streamProducts(() -> productService.streamProducts(plan), stream);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header("X-Query-Plan", plan.getSummary())
+                .body(response.getBody());
+    }
+    
+    /**
+     * 分页查询产品（指定 limit 时使用）
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @param limit 每页数量
+     * @param cursor 上一页返回的 nextCursor，不传表示第一页
+     * @param sort 排序字段：id 或 price
+     * @param order 排序方向：asc 或 desc
+     * @param request 当前请求
+     * @return 一页产品和下一页游标
+     */
+    @GetMapping(value = "/search", params = "limit")
+    public ResponseEntity<ProductPage> searchProductsPage(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        try {
+            QueryPlan plan = productService.planSearch(name, category, minPrice, maxPrice);
+            ProductPage page = productService.searchProducts(plan, limit, cursor, SortKey.parse(sort), "desc".equalsIgnoreCase(order));
+            return ResponseEntity.ok().header("X-Query-Plan", plan.getSummary()).body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * 执行查询并返回查询计划（explain），不返回产品数据
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @return 查询计划，包括各访问路径的估计行数和实际行数
+     */
+    @GetMapping("/search/explain")
+    public ResponseEntity<QueryPlan> explainSearch(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice) {
-        List<Product> products = productService.searchProducts(name, category, minPrice, maxPrice);
-        return ResponseEntity.ok(products);
+        QueryPlan plan = productService.planSearch(name, category, minPrice, maxPrice);
+        productService.searchProducts(plan);
+        return ResponseEntity.ok(plan);
+    }
+    
+    /**
+     * 查询缓存的统计信息
+     * @return 命中、未命中、淘汰和失效次数
+     */
+    @GetMapping("/search/cache-stats")
+    public ResponseEntity<CacheStats> getSearchCacheStats() {
+        return ResponseEntity.ok(productService.getSearchCacheStats());
+    }
+    
+    /**
+     * 统计满足条件的产品
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @param request 当前请求
+     * @return 数量、库存合计、价格区间与均价、库存总价值
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ProductStats> getProductStats(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        return ResponseEntity.ok(productService.getProductStats(category, minPrice, maxPrice));
     }
     
     /**
      * 批量更新产品价格
      * @param request 价格更新请求
-     * @return 更新结果
+     * @return 更新结果，列出已修改、不满足条件和不存在的产品ID
      */
-    @PutMapping("/batch/price")
-    public ResponseEntity<String> batchUpdatePrice(@RequestBody BatchPriceUpdateRequest request) {
-        int count = productService.batchUpdatePrice(request.getProductIds(), request.getAdjustment());
-        return ResponseEntity.ok("成功更新" + count + "个产品的价格");
+    @RequestMapping(value = "/batch/price", method = {RequestMethod.PUT, RequestMethod.PATCH})
+    public ResponseEntity<ProductService.BatchUpdateResult> batchUpdatePrice(@RequestBody BatchPriceUpdateRequest request) {
+        return ResponseEntity.ok(productService.batchUpdatePrice(request.getProductIds(), request.getAdjustment()));
     }
     
     /**
      * 按百分比批量更新产品价格
      * @param request 价格更新请求
-     * @return 更新结果
+     * @return 更新结果，列出已修改、不满足条件和不存在的产品ID
      */
-    @PutMapping("/batch/price/percentage")
-    public ResponseEntity<String> batchUpdatePriceByPercentage(@RequestBody BatchPriceUpdateRequest request) {
-        int count = productService.batchUpdatePriceByPercentage(request.getProductIds(), request.getAdjustment());
-        return ResponseEntity.ok("成功更新" + count + "个产品的价格");
+    @RequestMapping(value = "/batch/price/percentage", method = {RequestMethod.PUT, RequestMethod.PATCH})
+    public ResponseEntity<ProductService.BatchUpdateResult> batchUpdatePriceByPercentage(@RequestBody BatchPriceUpdateRequest request) {
+        return ResponseEntity.ok(productService.batchUpdatePriceByPercentage(request.getProductIds(), request.getAdjustment()));
     }
     
     /**
      * 批量更新产品库存
      * @param request 库存更新请求
-     * @return 更新结果
+     * @return 更新结果，列出已修改和不存在的产品ID
+     */
+    @RequestMapping(value = "/batch/stock", method = {RequestMethod.PUT, RequestMethod.PATCH})
+    public ResponseEntity<ProductService.BatchUpdateResult> batchUpdateStock(@RequestBody BatchStockUpdateRequest request) {
+        return ResponseEntity.ok(productService.batchUpdateStock(request.getProductIds(), request.getNewStock()));
+    }
+    
+    /**
+     * 查询产品的可用库存和预占数量
+     * @param id 产品ID
+     * @return 库存信息
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<Object> getStock(@PathVariable String id) {
+        if (productService.getAvailableStock(id) < 0) {
+            return error(HttpStatus.NOT_FOUND, "产品不存在");
+        }
+        return ResponseEntity.ok(stockBody(id));
+    }
+    
+    /**
+     * 预占库存，可用库存不足时返回409，不会超卖
+     * @param id 产品ID
+     * @param quantity 数量
+     * @return 预占后的库存信息
+     */
+    @PostMapping("/{id}/stock/reserve")
+    public ResponseEntity<Object> reserveStock(@PathVariable String id, @RequestParam int quantity) {
+        return stockResponse(id, () -> productService.reserveStock(id, quantity), "可用库存不足");
+    }
+    
+    /**
+     * 释放预占的库存
+     * @param id 产品ID
+     * @param quantity 数量
+     * @return 释放后的库存信息，超过已预占数量时返回409
+     */
+    @PostMapping("/{id}/stock/release")
+    public ResponseEntity<Object> releaseStock(@PathVariable String id, @RequestParam int quantity) {
+        return stockResponse(id, () -> productService.releaseStock(id, quantity), "释放数量超过已预占数量");
+    }
+    
+    /**
+     * 把预占的库存转为扣减
+     * @param id 产品ID
+     * @param quantity 数量
+     * @return 扣减后的库存信息，超过已预占数量时返回409
+     */
+    @PostMapping("/{id}/stock/commit")
+    public ResponseEntity<Object> commitReservedStock(@PathVariable String id, @RequestParam int quantity) {
+        return stockResponse(id, () -> productService.commitReservedStock(id, quantity), "扣减数量超过已预占数量");
+    }
+    
+    /**
+     * 直接扣减库存，可用库存不足时返回409
+     * @param id 产品ID
+     * @param quantity 数量
+     * @return 扣减后的库存信息
+     */
+    @PostMapping("/{id}/stock/decrement")
+    public ResponseEntity<Object> decrementStock(@PathVariable String id, @RequestParam int quantity) {
+        return stockResponse(id, () -> productService.decrementStock(id, quantity), "可用库存不足");
+    }
+    
+    /**
+     * 批量预占多个产品的库存，全部成功或全部失败
+     * @param quantities 产品ID到数量的映射，如 {"P001": 2, "P002": 1}
+     * @return 预占结果，失败时返回409并列出失败的产品ID
+     */
+    @PostMapping("/stock/reserve")
+    public ResponseEntity<Object> reserveStock(@RequestBody Map<String, Integer> quantities) {
+        try {
+            ProductService.ReservationResult result = productService.reserveStock(quantities);
+            return ResponseEntity.status(result.isReserved() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    /**
+     * 批量释放多个产品预占的库存
+     * @param quantities 产品ID到数量的映射
+     * @return 释放失败的产品ID，数量无效时返回400
      */
-    @PutMapping("/batch/stock")
-    public ResponseEntity<String> batchUpdateStock(@RequestBody BatchStockUpdateRequest request) {
-        int count = productService.batchUpdateStock(request.getProductIds(), request.getNewStock());
-        return ResponseEntity.ok("成功更新" + count + "个产品的库存");
+    @PostMapping("/stock/release")
+    public ResponseEntity<Object> releaseStock(@RequestBody Map<String, Integer> quantities) {
+        try {
+            List<String> failed = productService.releaseStock(quantities);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("failedIds", failed);
+            return ResponseEntity.status(failed.isEmpty() ? HttpStatus.OK : HttpStatus.CONFLICT).body(body);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
     
     /**
@@ -183,38 +542,56 @@ public class ProductController {
         }
     }
     
+    /**
+     * 从CSV导入产品数据，列与Excel导入相同
+     * 直接读取上传流，不生成临时文件
+     * @param file CSV文件（UTF-8编码）
+     * @return 导入结果
+     */
+    @PostMapping("/import/csv")
+    public ResponseEntity<String> importProductsFromCsv(@RequestParam("file") MultipartFile file) {
+        return importStream(file, excelImportService::importProductsFromCsv);
+    }
+    
+    /**
+     * 从NDJSON导入产品数据，每行一个产品JSON对象
+     * @param file NDJSON文件（UTF-8编码）
+     * @return 导入结果
+     */
+    @PostMapping("/import/ndjson")
+    public ResponseEntity<String> importProductsFromNdjson(@RequestParam("file") MultipartFile file) {
+        return importStream(file, excelImportService::importProductsFromNdjson);
+    }
+    
+    /**
+     * 从上传流导入数据
+     * @param file 上传文件
+     * @param importer 导入操作
+     * @return 导入结果
+     */
+    private ResponseEntity<String> importStream(MultipartFile file,
+                                                Function<InputStream, ExcelImportService.ImportResult> importer) {
+        if (file.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("导入失败: 文件为空");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(importer.apply(in).toString());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("导入失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 导出所有产品到Excel
+     * 工作簿直接写入响应输出流（分块传输），不在服务器上生成临时导出文件
      * @param response HTTP响应
      */
     @GetMapping("/export/all")
     public void exportAllProducts(HttpServletResponse response) {
-        try {
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-            response.setHeader("Content-Disposition", "attachment; filename=products.xlsx");
-            
-            String fileName = "excel/export/products_" + System.currentTimeMillis() + ".xlsx";
-            boolean success = excelExportService.exportAllProducts(fileName);
-            
-            if (success) {
-                // 读取文件并写入响应
-                java.nio.file.Files.copy(
-                    java.nio.file.Paths.get(fileName),
-                    response.getOutputStream()
-                );
-                response.getOutputStream().flush();
-                
-                // 删除临时文件
-                java.nio.file.Files.delete(java.nio.file.Paths.get(fileName));
-            }
-        } catch (Exception e) {
-            try {
-                response.getWriter().write("导出失败: " + e.getMessage());
-                response.getWriter().flush();
-            } catch (java.io.IOException ioException) {
-                ioException.printStackTrace();
-            }
-        }
+        writeExport(response, "products.xlsx", EXCEL_CONTENT_TYPE, excelExportService::exportAllProducts);
     }
     
     /**
@@ -232,29 +609,228 @@ public class ProductController {
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             HttpServletResponse response) {
+        writeExport(response, "filtered_products.xlsx", EXCEL_CONTENT_TYPE,
+                out -> excelExportService.exportFilteredProducts(out, name, category, minPrice, maxPrice));
+    }
+    
+    /**
+     * 导出产品为CSV，未指定条件时导出全部产品
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @param response HTTP响应
+     */
+    @GetMapping("/export/csv")
+    public void exportProductsToCsv(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            HttpServletResponse response) {
+        writeExport(response, "products.csv", "text/csv;charset=UTF-8",
+                out -> excelExportService.exportProductsToCsv(out, name, category, minPrice, maxPrice));
+    }
+    
+    /**
+     * 导出产品为NDJSON，未指定条件时导出全部产品
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @param response HTTP响应
+     */
+    @GetMapping("/export/ndjson")
+    public void exportProductsToNdjson(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            HttpServletResponse response) {
+        writeExport(response, "products.ndjson", "application/x-ndjson",
+                out -> excelExportService.exportProductsToNdjson(out, name, category, minPrice, maxPrice));
+    }
+    
+    /**
+     * 把条件更新结果转换为响应
+     * 成功返回200、新版本的产品和 ETag；产品不存在返回404；版本冲突返回412并带上当前版本的 ETag；数据无效返回400
+     * @param result 更新结果
+     * @return HTTP响应
+     */
+    private ResponseEntity<Object> toResponse(ProductService.UpdateResult result) {
+        switch (result.getStatus()) {
+            case UPDATED:
+                return ResponseEntity.ok().eTag("\"" + result.getProduct().getVersion() + "\"").body(result.getProduct());
+            case NOT_FOUND:
+                return error(HttpStatus.NOT_FOUND, "产品不存在");
+            case VERSION_CONFLICT:
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .eTag("\"" + result.getProduct().getVersion() + "\"")
+                        .body(errorBody(result.getErrors().get(0)));
+            default:
+                return error(HttpStatus.BAD_REQUEST, "产品数据验证失败: " + String.join(", ", result.getErrors()));
+        }
+    }
+    
+    /**
+     * 修改未能持久化时返回500，不向客户端确认未保存的修改
+     * @param e 持久化异常
+     * @return 错误响应
+     */
+    @ExceptionHandler(PersistenceException.class)
+    public ResponseEntity<Object> handlePersistenceFailure(PersistenceException e) {
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+    }
+    
+    private ResponseEntity<Object> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(errorBody(message));
+    }
+    
+    /**
+     * 错误响应体，页面从 message 字段读取错误信息
+     */
+    private Map<String, Object> errorBody(String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", message);
+        return body;
+    }
+    
+    /**
+     * 执行单个产品的库存操作并生成响应
+     * @param id 产品ID
+     * @param operation 库存操作
+     * @param failure 操作失败时的错误信息
+     * @return 成功返回200和库存信息；产品不存在返回404；操作失败返回409；数量无效返回400
+     */
+    private ResponseEntity<Object> stockResponse(String id, BooleanSupplier operation, String failure) {
+        boolean succeeded;
         try {
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-            response.setHeader("Content-Disposition", "attachment; filename=filtered_products.xlsx");
-            
-            String fileName = "excel/export/filtered_products_" + System.currentTimeMillis() + ".xlsx";
-            boolean success = excelExportService.exportFilteredProducts(fileName, name, category, minPrice, maxPrice);
-            
-            if (success) {
-                // 读取文件并写入响应
-                java.nio.file.Files.copy(
-                    java.nio.file.Paths.get(fileName),
-                    response.getOutputStream()
-                );
-                response.getOutputStream().flush();
-                
-                // 删除临时文件
-                java.nio.file.Files.delete(java.nio.file.Paths.get(fileName));
+            succeeded = operation.getAsBoolean();
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (productService.getAvailableStock(id) < 0) {
+            return error(HttpStatus.NOT_FOUND, "产品不存在");
+        }
+        if (!succeeded) {
+            Map<String, Object> body = stockBody(id);
+            body.put("message", failure);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        }
+        return ResponseEntity.ok(stockBody(id));
+    }
+    
+    private Map<String, Object> stockBody(String id) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("productId", id);
+        body.put("available", productService.getAvailableStock(id));
+        body.put("reserved", productService.getReservedStock(id));
+        return body;
+    }
+    
+    /**
+     * 解析 If-Match 头中的版本号
+     * 只接受 GET /{id} 返回的强 ETag，如 "12"；* 表示只要求产品存在
+     * @param ifMatch If-Match 头
+     * @return 版本号，* 时返回null
+     * @throws IllegalArgumentException 格式无效
+     */
+    private Long parseIfMatch(String ifMatch) {
+        String value = ifMatch.trim();
+        if ("*".equals(value)) {
+            return null;
+        }
+        if (value.length() < 3 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new IllegalArgumentException("If-Match 必须是产品的强 ETag: " + ifMatch);
+        }
+        try {
+            return Long.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match 必须是产品的强 ETag: " + ifMatch);
+        }
+    }
+    
+    /**
+     * 列表和查询接口的条件请求处理
+     * 弱 ETag 由全局数据版本号生成，数据未修改时设置304，调用方直接返回，不再查询和序列化。
+     * 版本号在查询前读取，查询期间发生的修改只会让客户端下次多下载一次
+     * @param request 当前请求
+     * @return 客户端缓存仍然有效时返回true
+     */
+    private boolean notModified(WebRequest request) {
+        return request.checkNotModified("W/\"" + productService.getStoreVersion() + "\"");
+    }
+    
+    /**
+     * 把产品逐个写入响应
+     * 第一个产品写完立即 flush，客户端尽快收到首字节，之后由缓冲区按块发送。
+     * 产品流在开始写入时才打开，写完或出错后关闭，释放它持有的快照
+     * @param products 打开产品流的操作
+     * @param format json 或 ndjson
+     * @return 流式响应
+     */
+    private ResponseEntity<StreamingResponseBody> streamProducts(Supplier<Stream<Product>> products, String format) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> {
+            try (Stream<Product> stream = products.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                boolean first = true;
+                for (Product product : (Iterable<Product>) stream::iterator) {
+                    generator.writeObject(product);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                    if (first) {
+                        generator.flush();
+                        first = false;
+                    }
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
             }
+        };
+        return ResponseEntity.ok().contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON).body(body);
+    }
+    
+    /**
+     * 写入导出内容的操作
+     */
+    private interface ExportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+    
+    /**
+     * 把导出内容直接写入HTTP响应
+     * 响应尚未提交时出错返回500和错误信息；已开始传输后出错只能中断连接
+     * @param response HTTP响应
+     * @param fileName 下载文件名
+     * @param contentType 内容类型
+     * @param writer 写入操作
+     */
+    private void writeExport(HttpServletResponse response, String fileName, String contentType, ExportWriter writer) {
+        try {
+            response.setContentType(contentType);
+            response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+            writer.write(response.getOutputStream());
+            response.flushBuffer();
         } catch (Exception e) {
+            System.err.println("导出失败: " + e.getMessage());
+            if (response.isCommitted()) {
+                return;
+            }
             try {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                response.setContentType("text/plain;charset=UTF-8");
                 response.getWriter().write("导出失败: " + e.getMessage());
                 response.getWriter().flush();
-            } catch (java.io.IOException ioException) {
+            } catch (IOException ioException) {
                 ioException.printStackTrace();
             }
         }
@@ -0,0 +1,74 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分类索引：分类 -> 产品ID集合
+ */
+public class CategoryIndex implements ProductIndex {
+    
+    private final ConcurrentHashMap<String, Set<String>> idsByCategory = new ConcurrentHashMap<>();
+    
+    @Override
+    public void add(Product product) {
+        if (product.getCategory() == null) {
+            return;
+        }
+        idsByCategory.compute(product.getCategory(), (category, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(product.getId());
+            return ids;
+        });
+    }
+    
+    @Override
+    public void remove(Product product) {
+        if (product.getCategory() == null) {
+            return;
+        }
+        // 集合为空时删除分类，避免保留已不存在的分类
+        idsByCategory.computeIfPresent(product.getCategory(), (category, ids) -> {
+            ids.remove(product.getId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
+    @Override
+    public void clear() {
+        idsByCategory.clear();
+    }
+    
+    /**
+     * 获取分类下的产品ID
+     * @param category 分类
+     * @return 产品ID的只读视图，分类不存在时返回空集合
+     */
+    public Set<String> get(String category) {
+        Set<String> ids = idsByCategory.get(category);
+        return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+    }
+    
+    /**
+     * 分类下的产品数量
+     * @param category 分类
+     * @return 产品数量
+     */
+    public int count(String category) {
+        Set<String> ids = idsByCategory.get(category);
+        return ids != null ? ids.size() : 0;
+    }
+    
+    /**
+     * 不同分类的数量
+     * @return 分类数量
+     */
+    public int categoryCount() {
+        return idsByCategory.size();
+    }
+}
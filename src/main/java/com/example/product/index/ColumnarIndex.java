@@ -0,0 +1,241 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+import com.example.product.model.ProductStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 列式存储：按列保存扫描和统计用到的字段（结构数组）
+ * 价格为 double[]（没有价格时为 NaN），库存为 int[]，分类按字典编码为 int[]，另有 ID -> 槽位 的映射。
+ * 全表扫描和统计只在连续的基本类型数组上循环，不拆箱、不访问产品对象，只有结果行才按ID取出产品。
+ * 与其他索引一样不分版本，扫描结果仍需用产品数据校验；统计结果对应扫描时已应用的所有修改。
+ * 修改由 ProductService 在写锁内进行，并且一次提交内的所有修改都在 lockForUpdate 返回的锁内完成，
+ * 读取方先乐观读，期间有修改时再加读锁重新扫描，因此不会看到只应用了一部分的提交
+ */
+public class ColumnarIndex implements ProductIndex {
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private static final int NO_CATEGORY = -1;
+    
+    private final StampedLock lock = new StampedLock();
+    
+    // 分类字典：分类 -> 编码，只增不减；读取方无锁访问
+    private final Map<String, Integer> categoryCodes = new ConcurrentHashMap<>();
+    
+    // ID -> 槽位，只由写入方访问
+    private final Map<String, Integer> slots = new HashMap<>();
+    
+    // 各列的前 size 个槽位有效，删除时把最后一个槽位移到空出的位置，保持连续
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] stocks = new int[INITIAL_CAPACITY];
+    private int[] categories = new int[INITIAL_CAPACITY];
+    private int size;
+    
+    /**
+     * 取得修改用的写锁，一次提交的所有 add/remove 都应在同一个锁内完成
+     * @return 传给 unlock 的标记
+     */
+    public long lockForUpdate() {
+        return lock.writeLock();
+    }
+    
+    /**
+     * 释放 lockForUpdate 取得的写锁
+     * @param stamp lockForUpdate 返回的标记
+     */
+    public void unlock(long stamp) {
+        lock.unlockWrite(stamp);
+    }
+    
+    /**
+     * 加入一个产品，已存在时覆盖；调用方需持有 lockForUpdate 的锁
+     * @param product 产品对象
+     */
+    @Override
+    public void add(Product product) {
+        Integer slot = slots.get(product.getId());
+        int i;
+        if (slot != null) {
+            i = slot;
+        } else {
+            if (size == ids.length) {
+                grow();
+            }
+            i = size;
+            ids[i] = product.getId();
+            slots.put(product.getId(), i);
+        }
+        prices[i] = product.getPrice() != null ? product.getPrice() : Double.NaN;
+        stocks[i] = product.getStock() != null ? product.getStock() : 0;
+        categories[i] = product.getCategory() != null ? categoryCode(product.getCategory()) : NO_CATEGORY;
+        if (slot == null) {
+            size++;
+        }
+    }
+    
+    private int categoryCode(String category) {
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+            code = categoryCodes.size();
+            categoryCodes.put(category, code);
+        }
+        return code;
+    }
+    
+    /**
+     * 移除一个产品；调用方需持有 lockForUpdate 的锁
+     * @param product 产品对象
+     */
+    @Override
+    public void remove(Product product) {
+        Integer slot = slots.remove(product.getId());
+        if (slot == null) {
+            return;
+        }
+        int last = size - 1;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            prices[slot] = prices[last];
+            stocks[slot] = stocks[last];
+            categories[slot] = categories[last];
+            slots.put(ids[slot], slot);
+        }
+        ids[last] = null;
+        size = last;
+    }
+    
+    /**
+     * 清空所有列，分类字典保留；调用方需持有 lockForUpdate 的锁
+     */
+    @Override
+    public void clear() {
+        slots.clear();
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+    
+    /**
+     * 产品数量
+     * @return 产品数量
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * 扫描分类列和价格列，返回满足条件的产品ID
+     * @param category 分类，null表示不限
+     * @param minPrice 最低价格（包含），null表示不限
+     * @param maxPrice 最高价格（包含），null表示不限
+     * @return 产品ID列表，按槽位顺序
+     */
+    public List<String> scan(String category, Double minPrice, Double maxPrice) {
+        Integer code = category != null ? categoryCodes.get(category) : null;
+        if (category != null && code == null) {
+            return new ArrayList<>();
+        }
+        long stamp = lock.tryOptimisticRead();
+        List<String> result = scan(code, minPrice, maxPrice);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = scan(code, minPrice, maxPrice);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+    
+    private List<String> scan(Integer code, Double minPrice, Double maxPrice) {
+        // 乐观读时各字段可能来自不同时刻，按数组的实际长度限制范围，结果由调用方校验后决定是否丢弃
+        String[] ids = this.ids;
+        double[] prices = this.prices;
+        int[] categories = this.categories;
+        int n = Math.min(size, Math.min(ids.length, Math.min(prices.length, categories.length)));
+        boolean filterCategory = code != null;
+        int categoryCode = filterCategory ? code : NO_CATEGORY;
+        boolean filterPrice = minPrice != null || maxPrice != null;
+        double min = minPrice != null ? minPrice : Double.NEGATIVE_INFINITY;
+        double max = maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY;
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            // NaN 与任何价格比较都为false，没有价格的产品不满足价格条件
+            if ((!filterCategory || categories[i] == categoryCode)
+                    && (!filterPrice || (prices[i] >= min && prices[i] <= max))) {
+                result.add(ids[i]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 统计满足条件的产品，只访问价格、库存和分类列
+     * @param category 分类，null表示不限
+     * @param minPrice 最低价格（包含），null表示不限
+     * @param maxPrice 最高价格（包含），null表示不限
+     * @return 统计结果
+     */
+    public ProductStats aggregate(String category, Double minPrice, Double maxPrice) {
+        Integer code = category != null ? categoryCodes.get(category) : null;
+        if (category != null && code == null) {
+            return new ProductStats();
+        }
+        long stamp = lock.tryOptimisticRead();
+        ProductStats stats = aggregate(code, minPrice, maxPrice);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                stats = aggregate(code, minPrice, maxPrice);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return stats;
+    }
+    
+    private ProductStats aggregate(Integer code, Double minPrice, Double maxPrice) {
+        double[] prices = this.prices;
+        int[] stocks = this.stocks;
+        int[] categories = this.categories;
+        int n = Math.min(size, Math.min(prices.length, Math.min(stocks.length, categories.length)));
+        boolean filterCategory = code != null;
+        int categoryCode = filterCategory ? code : NO_CATEGORY;
+        boolean filterPrice = minPrice != null || maxPrice != null;
+        double min = minPrice != null ? minPrice : Double.NEGATIVE_INFINITY;
+        double max = maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY;
+        ProductStats stats = new ProductStats();
+        for (int i = 0; i < n; i++) {
+            if ((!filterCategory || categories[i] == categoryCode)
+                    && (!filterPrice || (prices[i] >= min && prices[i] <= max))) {
+                stats.add(prices[i], stocks[i]);
+            }
+        }
+        return stats;
+    }
+    
+    /**
+     * 所有列扩容一倍，新数组在复制完成后才替换旧数组
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        stocks = Arrays.copyOf(stocks, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+    }
+}
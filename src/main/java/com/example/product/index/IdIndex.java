@@ -0,0 +1,40 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * ID排序索引，用于按ID分页
+ */
+public class IdIndex implements ProductIndex {
+    
+    private final ConcurrentSkipListSet<String> ids = new ConcurrentSkipListSet<>();
+    
+    @Override
+    public void add(Product product) {
+        ids.add(product.getId());
+    }
+    
+    @Override
+    public void remove(Product product) {
+        ids.remove(product.getId());
+    }
+    
+    @Override
+    public void clear() {
+        ids.clear();
+    }
+    
+    /**
+     * 排在游标之后的ID
+     * @param after 上一页最后一个ID，null表示从头开始
+     * @param descending 是否降序
+     * @return 按顺序排列的只读视图，遍历时不复制
+     */
+    public Iterable<String> after(String after, boolean descending) {
+        NavigableSet<String> view = descending ? ids.descendingSet() : ids;
+        return after != null ? view.tailSet(after, false) : view;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 产品名称的 n-gram 倒排索引，用于不区分大小写的子串查询
+ * 名称转小写后按码点切分出所有单字和相邻两字（bigram），中文每个汉字就是一个码点，
+ * 不需要分词，中英文混排（如 "OnePlus 相机"）按同样规则处理。
+ * 查询时取查询串的所有 bigram 对应的ID集合求交集，得到的是候选ID，还需要用名称校验
+ */
+public class NameIndex implements ProductIndex {
+    
+    // 单字的键加上这一位，与 bigram 的键区分
+    private static final long UNIGRAM_FLAG = 1L << 42;
+    
+    private final ConcurrentHashMap<Long, Set<String>> idsByGram = new ConcurrentHashMap<>();
+    
+    /**
+     * 名称的规范化形式，查询和校验都应使用它
+     * @param name 名称
+     * @return 小写名称
+     */
+    public static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    @Override
+    public void add(Product product) {
+        if (product.getName() == null) {
+            return;
+        }
+        for (long gram : grams(normalize(product.getName()), true)) {
+            idsByGram.compute(gram, (key, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                }
+                ids.add(product.getId());
+                return ids;
+            });
+        }
+    }
+    
+    @Override
+    public void remove(Product product) {
+        if (product.getName() == null) {
+            return;
+        }
+        for (long gram : grams(normalize(product.getName()), true)) {
+            idsByGram.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(product.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+    
+    @Override
+    public void clear() {
+        idsByGram.clear();
+    }
+    
+    /**
+     * 名称可能包含查询串的产品ID
+     * @param normalizedQuery 规范化后的查询串，不能为空串
+     * @return 候选ID，可能包含不匹配的产品，但不会漏掉匹配的产品
+     */
+    public Set<String> candidates(String normalizedQuery) {
+        List<Set<String>> postings = postings(normalizedQuery);
+        if (postings.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // 从最小的集合开始求交集
+        Set<String> smallest = postings.get(0);
+        if (postings.size() == 1) {
+            return Collections.unmodifiableSet(smallest);
+        }
+        Set<String> result = new HashSet<>();
+        for (String id : smallest) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 候选ID数量的上限估计（最小的 gram 集合大小），不需要求交集
+     * @param normalizedQuery 规范化后的查询串，不能为空串
+     * @return 估计数量
+     */
+    public int estimate(String normalizedQuery) {
+        List<Set<String>> postings = postings(normalizedQuery);
+        return postings.isEmpty() ? 0 : postings.get(0).size();
+    }
+    
+    /**
+     * 查询串各 gram 的ID集合，按大小升序；任一 gram 不存在时返回空列表
+     */
+    private List<Set<String>> postings(String normalizedQuery) {
+        List<Set<String>> postings = new ArrayList<>();
+        for (long gram : grams(normalizedQuery, false)) {
+            Set<String> ids = idsByGram.get(gram);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        return postings;
+    }
+    
+    /**
+     * 切分 gram
+     * 建索引时取所有单字和 bigram；查询时长度为1取单字，否则只取 bigram
+     * @param text 规范化后的文本
+     * @param forIndex 是否用于建索引
+     * @return gram 键，已去重
+     */
+    private static Set<Long> grams(String text, boolean forIndex) {
+        int[] codePoints = text.codePoints().toArray();
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i < codePoints.length; i++) {
+            if (forIndex || codePoints.length == 1) {
+                grams.add(UNIGRAM_FLAG | codePoints[i]);
+            }
+            if (i + 1 < codePoints.length) {
+                // 码点不超过21位，两个码点拼成一个键
+                grams.add(((long) codePoints[i] << 21) | codePoints[i + 1]);
+            }
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 分页游标：上一页最后一个产品的排序键
+ * 对外是不透明的 URL 安全字符串，内容为 "ID" 或 "价格:ID"
+ */
+public class PageCursor {
+    
+    private final SortKey sortKey;
+    private final double price;
+    private final String id;
+    
+    private PageCursor(SortKey sortKey, double price, String id) {
+        this.sortKey = sortKey;
+        this.price = price;
+        this.id = id;
+    }
+    
+    /**
+     * 以产品的排序键作为游标
+     * @param sortKey 排序字段
+     * @param product 产品
+     * @return 游标
+     */
+    public static PageCursor of(SortKey sortKey, Product product) {
+        return new PageCursor(sortKey, sortKey == SortKey.PRICE ? product.getPrice() : 0, product.getId());
+    }
+    
+    /**
+     * 解析游标
+     * @param sortKey 排序字段，必须与生成游标时相同
+     * @param value 游标字符串
+     * @return 游标
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static PageCursor decode(SortKey sortKey, String value) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + value);
+        }
+        if (sortKey == SortKey.ID) {
+            return new PageCursor(sortKey, 0, text);
+        }
+        int separator = text.indexOf(':');
+        try {
+            return new PageCursor(sortKey, Double.parseDouble(text.substring(0, separator)), text.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + value);
+        }
+    }
+    
+    /**
+     * 编码为字符串
+     * @return 游标字符串
+     */
+    public String encode() {
+        String text = sortKey == SortKey.PRICE ? price + ":" + id : id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 产品是否排在游标之后
+     * @param product 产品
+     * @param descending 是否降序
+     * @return 排在之后返回true
+     */
+    public boolean isBefore(Product product, boolean descending) {
+        int result;
+        if (sortKey == SortKey.PRICE) {
+            result = Double.compare(product.getPrice(), price);
+            if (result == 0) {
+                result = product.getId().compareTo(id);
+            }
+        } else {
+            result = product.getId().compareTo(id);
+        }
+        return descending ? result < 0 : result > 0;
+    }
+    
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+    
+    public double getPrice() {
+        return price;
+    }
+    
+    public String getId() {
+        return id;
+    }
+}
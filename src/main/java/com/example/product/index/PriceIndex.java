@@ -0,0 +1,288 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 价格索引：按 (价格, 产品ID) 排序
+ * 价格区间查询为 O(log n + k)，同价产品按ID排序，顺序稳定
+ */
+public class PriceIndex implements ProductIndex {
+    
+    // 直方图的采样点数（等深直方图）
+    private static final int HISTOGRAM_BUCKETS = 256;
+    
+    // 修改次数超过该值（且超过数量的1/8）后重建直方图
+    private static final int HISTOGRAM_MIN_STALENESS = 1024;
+    
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+    
+    // ConcurrentSkipListSet.size() 需要遍历，单独计数
+    private final AtomicInteger count = new AtomicInteger();
+    
+    // 累计修改次数，用于判断直方图是否过期
+    private final AtomicLong modifications = new AtomicLong();
+    
+    private volatile Histogram histogram;
+    
+    @Override
+    public void add(Product product) {
+        if (product.getPrice() != null && entries.add(new Entry(product.getPrice(), product.getId(), 0))) {
+            count.incrementAndGet();
+            modifications.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void remove(Product product) {
+        if (product.getPrice() != null && entries.remove(new Entry(product.getPrice(), product.getId(), 0))) {
+            count.decrementAndGet();
+            modifications.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        entries.clear();
+        count.set(0);
+        histogram = null;
+    }
+    
+    /**
+     * 价格区间内的产品ID，按价格升序
+     * @param minPrice 最低价格（包含），null表示不限
+     * @param maxPrice 最高价格（包含），null表示不限
+     * @return 产品ID列表
+     */
+    public List<String> range(Double minPrice, Double maxPrice) {
+        List<String> ids = new ArrayList<>();
+        for (Entry entry : entries(minPrice, maxPrice)) {
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+    
+    /**
+     * 价格区间内排在游标之后的产品ID，用于按价格分页
+     * @param minPrice 最低价格（包含），null表示不限
+     * @param maxPrice 最高价格（包含），null表示不限
+     * @param after 上一页最后一个产品的游标，null表示从头开始
+     * @param descending 是否降序
+     * @return 按 (价格, ID) 排列的ID，遍历时不复制
+     */
+    public Iterable<String> after(Double minPrice, Double maxPrice, PageCursor after, boolean descending) {
+        NavigableSet<Entry> view = entries(minPrice, maxPrice);
+        if (descending) {
+            view = view.descendingSet();
+        }
+        if (after != null) {
+            view = view.tailSet(new Entry(after.getPrice(), after.getId(), 0), false);
+        }
+        NavigableSet<Entry> entries = view;
+        return () -> new Iterator<String>() {
+            private final Iterator<Entry> iterator = entries.iterator();
+            
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+            
+            @Override
+            public String next() {
+                return iterator.next().id;
+            }
+        };
+    }
+    
+    /**
+     * 价格区间内的索引项视图
+     * @param minPrice 最低价格（包含），null表示不限
+     * @param maxPrice 最高价格（包含），null表示不限
+     * @return 按 (价格, ID) 升序的只读视图，最低价格大于最高价格时为空
+     */
+    NavigableSet<Entry> entries(Double minPrice, Double maxPrice) {
+        if (isEmptyRange(minPrice, maxPrice)) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<Entry> view = entries;
+        if (minPrice != null) {
+            view = view.tailSet(new Entry(minPrice, null, -1), true);
+        }
+        if (maxPrice != null) {
+            view = view.headSet(new Entry(maxPrice, null, 1), true);
+        }
+        return view;
+    }
+    
+    private static boolean isEmptyRange(Double minPrice, Double maxPrice) {
+        return minPrice != null && maxPrice != null && minPrice > maxPrice;
+    }
+    
+    /**
+     * 已索引的产品数量
+     * @return 数量
+     */
+    public int size() {
+        return count.get();
+    }
+    
+    /**
+     * 估计价格区间内的产品数量，不遍历区间
+     * 数据较少时精确计数，否则使用等深直方图，估计值偏大不超过一个桶
+     * @param minPrice 最低价格（包含），null表示不限
+     * @param maxPrice 最高价格（包含），null表示不限
+     * @return 估计数量
+     */
+    public long estimate(Double minPrice, Double maxPrice) {
+        if (isEmptyRange(minPrice, maxPrice)) {
+            return 0;
+        }
+        int size = count.get();
+        if (size <= HISTOGRAM_BUCKETS * 4) {
+            return entries(minPrice, maxPrice).size();
+        }
+        Histogram current = histogram();
+        double[] bounds = current.bounds;
+        int from = minPrice == null ? 0 : lowerBound(bounds, minPrice);
+        int to = maxPrice == null ? bounds.length : upperBound(bounds, maxPrice);
+        // 区间两端各可能落在一个桶的中间
+        long estimate = (long) Math.ceil((to - from + 1) * current.rowsPerBucket);
+        return Math.max(0, Math.min(size, estimate));
+    }
+    
+    /**
+     * 取直方图，过期时重建
+     */
+    private Histogram histogram() {
+        Histogram current = histogram;
+        if (current == null || isStale(current)) {
+            synchronized (this) {
+                current = histogram;
+                if (current == null || isStale(current)) {
+                    current = buildHistogram();
+                    histogram = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private boolean isStale(Histogram current) {
+        long changed = modifications.get() - current.modifications;
+        return changed > Math.max(HISTOGRAM_MIN_STALENESS, count.get() / 8);
+    }
+    
+    /**
+     * 按排名等间隔采样价格
+     */
+    private Histogram buildHistogram() {
+        long builtAt = modifications.get();
+        int size = Math.max(1, count.get());
+        int step = Math.max(1, size / HISTOGRAM_BUCKETS);
+        double[] bounds = new double[HISTOGRAM_BUCKETS + 1];
+        int sampled = 0;
+        int rank = 0;
+        for (Entry entry : entries) {
+            if (rank++ % step == 0 && sampled < bounds.length) {
+                bounds[sampled++] = entry.price;
+            }
+        }
+        return new Histogram(Arrays.copyOf(bounds, sampled), (double) rank / Math.max(1, sampled), builtAt);
+    }
+    
+    /**
+     * 第一个不小于 value 的下标
+     */
+    private static int lowerBound(double[] values, double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * 第一个大于 value 的下标
+     */
+    private static int upperBound(double[] values, double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * 等深直方图：按排名等间隔采样的价格
+     */
+    private static final class Histogram {
+        final double[] bounds;
+        final double rowsPerBucket;
+        final long modifications;
+        
+        Histogram(double[] bounds, double rowsPerBucket, long modifications) {
+            this.bounds = bounds;
+            this.rowsPerBucket = rowsPerBucket;
+            this.modifications = modifications;
+        }
+    }
+    
+    /**
+     * 索引项
+     * bound 为 -1/1 时表示同价格下比所有ID都小/大的边界，用于区间查询
+     */
+    static final class Entry implements Comparable<Entry> {
+        final double price;
+        final String id;
+        private final int bound;
+        
+        Entry(double price, String id, int bound) {
+            this.price = price;
+            this.id = id;
+            this.bound = bound;
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(price, other.price);
+            if (result != 0) {
+                return result;
+            }
+            if (bound != 0 || other.bound != 0) {
+                return Integer.compare(bound, other.bound);
+            }
+            return id.compareTo(other.id);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && compareTo((Entry) o) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Double.hashCode(price) * 31 + (id != null ? id.hashCode() : bound);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+/**
+ * 产品二级索引
+ * 由 ProductService 在写锁内维护，查询可以并发进行。
+ * 索引与产品数据不是原子更新的，查询结果需要再用产品数据校验
+ */
+public interface ProductIndex {
+    
+    /**
+     * 加入一个产品
+     * @param product 产品对象
+     */
+    void add(Product product);
+    
+    /**
+     * 移除一个产品，字段值必须与加入时相同
+     * @param product 产品对象
+     */
+    void remove(Product product);
+    
+    /**
+     * 清空索引
+     */
+    void clear();
+}
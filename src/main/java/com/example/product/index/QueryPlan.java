@@ -0,0 +1,175 @@
+package com.example.product.index;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询计划
+ * 记录选中的访问路径、各路径的估计行数，以及执行后实际检查和返回的行数（explain 输出）
+ */
+public class QueryPlan {
+    
+    /**
+     * 访问方式
+     */
+    public enum Strategy {
+        // 遍历所有产品
+        SCAN,
+        // 在列式存储上扫描分类和价格列，只取出满足条件的产品
+        COLUMN_SCAN,
+        // 由一个索引给出候选产品
+        INDEX,
+        // 多个索引的ID集合求交集
+        INTERSECT
+    }
+    
+    // 索引名称
+    public static final String NAME = "name";
+    public static final String CATEGORY = "category";
+    public static final String PRICE = "price";
+    
+    private final String name;
+    private final String normalizedName;
+    private final String category;
+    private final Double minPrice;
+    private final Double maxPrice;
+    
+    private Strategy strategy = Strategy.SCAN;
+    private final List<String> indexes = new ArrayList<>();
+    private final Map<String, Long> estimates = new LinkedHashMap<>();
+    private long totalRows;
+    private long estimatedRows;
+    private long examinedRows = -1;
+    private long resultRows = -1;
+    private boolean cached;
+    
+    QueryPlan(String name, String normalizedName, String category, Double minPrice, Double maxPrice) {
+        this.name = name;
+        this.normalizedName = normalizedName;
+        this.category = category;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * 小写的名称查询串，名称为空或空串时为null
+     */
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public Double getMinPrice() {
+        return minPrice;
+    }
+    
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+    
+    public Strategy getStrategy() {
+        return strategy;
+    }
+    
+    void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+    
+    /**
+     * 使用的索引，第一个为驱动索引
+     */
+    public List<String> getIndexes() {
+        return indexes;
+    }
+    
+    /**
+     * 各访问路径的估计行数，包括全表扫描
+     */
+    public Map<String, Long> getEstimates() {
+        return estimates;
+    }
+    
+    public long getTotalRows() {
+        return totalRows;
+    }
+    
+    void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+    
+    /**
+     * 选中路径的估计候选行数
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+    
+    void setEstimatedRows(long estimatedRows) {
+        this.estimatedRows = estimatedRows;
+    }
+    
+    /**
+     * 实际检查的行数，未执行时为-1
+     */
+    public long getExaminedRows() {
+        return examinedRows;
+    }
+    
+    public void setExaminedRows(long examinedRows) {
+        this.examinedRows = examinedRows;
+    }
+    
+    /**
+     * 实际返回的行数，未执行时为-1
+     */
+    public long getResultRows() {
+        return resultRows;
+    }
+    
+    public void setResultRows(long resultRows) {
+        this.resultRows = resultRows;
+    }
+    
+    /**
+     * 结果是否来自查询缓存（此时没有检查任何产品）
+     */
+    public boolean isCached() {
+        return cached;
+    }
+    
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+    
+    /**
+     * 单行的计划摘要，如 INDEX(category) est=120/10000
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder(strategy.name());
+        if (!indexes.isEmpty()) {
+            sb.append('(').append(String.join(",", indexes)).append(')');
+        }
+        sb.append(" est=").append(estimatedRows).append('/').append(totalRows);
+        if (examinedRows >= 0) {
+            sb.append(" examined=").append(examinedRows).append(" rows=").append(resultRows);
+        }
+        if (cached) {
+            sb.append(" cached");
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+}
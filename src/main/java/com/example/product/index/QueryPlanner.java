@@ -0,0 +1,158 @@
+package com.example.product.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于代价的查询计划器
+ * 用各索引的基数统计（分类的精确数量、n-gram 集合大小、价格直方图）估计每条访问路径的候选行数，
+ * 选择代价最小的驱动索引；两个ID集合索引都足够有选择性时求交集；
+ * 候选行数接近总行数时直接全表扫描，避免逐个按ID查找；启用列式存储时改为只扫描分类和价格列
+ */
+public class QueryPlanner {
+    
+    // 通过索引访问一行的代价（按ID查找）相对于顺序扫描一行的倍数
+    private static final double INDEX_ROW_COST = 2.0;
+    
+    // 在列式存储上扫描一行的代价相对于顺序扫描一行（访问产品对象）的倍数
+    private static final double COLUMN_ROW_COST = 0.1;
+    
+    // 作为交集的另一方时，集合大小不能超过总行数的这一比例
+    private static final double INTERSECT_SELECTIVITY = 0.1;
+    
+    private final NameIndex nameIndex;
+    private final CategoryIndex categoryIndex;
+    private final PriceIndex priceIndex;
+    private final ColumnarIndex columnarIndex;
+    private final LongSupplier totalRows;
+    
+    public QueryPlanner(NameIndex nameIndex, CategoryIndex categoryIndex, PriceIndex priceIndex,
+                        LongSupplier totalRows) {
+        this(nameIndex, categoryIndex, priceIndex, null, totalRows);
+    }
+    
+    /**
+     * @param columnarIndex 列式存储，null表示不使用列扫描
+     */
+    public QueryPlanner(NameIndex nameIndex, CategoryIndex categoryIndex, PriceIndex priceIndex,
+                        ColumnarIndex columnarIndex, LongSupplier totalRows) {
+        this.nameIndex = nameIndex;
+        this.categoryIndex = categoryIndex;
+        this.priceIndex = priceIndex;
+        this.columnarIndex = columnarIndex;
+        this.totalRows = totalRows;
+    }
+    
+    /**
+     * 为查询生成计划
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @return 查询计划
+     */
+    public QueryPlan plan(String name, String category, Double minPrice, Double maxPrice) {
+        String normalizedName = name != null && !name.isEmpty() ? NameIndex.normalize(name) : null;
+        QueryPlan plan = new QueryPlan(name, normalizedName, category, minPrice, maxPrice);
+        long total = totalRows.getAsLong();
+        plan.setTotalRows(total);
+        plan.getEstimates().put("scan", total);
+        
+        if (normalizedName != null) {
+            plan.getEstimates().put(QueryPlan.NAME, (long) nameIndex.estimate(normalizedName));
+        }
+        if (category != null) {
+            plan.getEstimates().put(QueryPlan.CATEGORY, (long) categoryIndex.count(category));
+        }
+        if (minPrice != null || maxPrice != null) {
+            plan.getEstimates().put(QueryPlan.PRICE, priceIndex.estimate(minPrice, maxPrice));
+        }
+        
+        String driver = null;
+        long driverRows = total;
+        for (String index : plan.getEstimates().keySet()) {
+            long rows = plan.getEstimates().get(index);
+            if (!"scan".equals(index) && (driver == null || rows < driverRows)) {
+                driver = index;
+                driverRows = rows;
+            }
+        }
+        // 有分类或价格条件时可以只扫描列，候选行比按索引逐个查找还多时更便宜
+        boolean columnar = columnarIndex != null && (category != null || minPrice != null || maxPrice != null);
+        if (columnar && total * COLUMN_ROW_COST < Math.min(driverRows * INDEX_ROW_COST, total)) {
+            plan.setStrategy(QueryPlan.Strategy.COLUMN_SCAN);
+            plan.setEstimatedRows(driverRows);
+            return plan;
+        }
+        if (driver == null || driverRows * INDEX_ROW_COST >= total) {
+            plan.setStrategy(QueryPlan.Strategy.SCAN);
+            plan.setEstimatedRows(total);
+            return plan;
+        }
+        
+        plan.getIndexes().add(driver);
+        plan.setEstimatedRows(driverRows);
+        plan.setStrategy(QueryPlan.Strategy.INDEX);
+        // 名称和分类都是ID集合，另一方也有选择性时先求交集再取产品
+        String other = QueryPlan.NAME.equals(driver) ? QueryPlan.CATEGORY
+                : QueryPlan.CATEGORY.equals(driver) ? QueryPlan.NAME : null;
+        Long otherRows = other != null ? plan.getEstimates().get(other) : null;
+        if (otherRows != null && otherRows <= total * INTERSECT_SELECTIVITY) {
+            plan.getIndexes().add(other);
+            plan.setStrategy(QueryPlan.Strategy.INTERSECT);
+        }
+        return plan;
+    }
+    
+    /**
+     * 按计划取候选产品ID
+     * @param plan 查询计划
+     * @return 候选ID，全表扫描时返回null；候选ID仍需用查询条件校验
+     */
+    public Collection<String> candidates(QueryPlan plan) {
+        if (plan.getStrategy() == QueryPlan.Strategy.SCAN) {
+            return null;
+        }
+        if (plan.getStrategy() == QueryPlan.Strategy.COLUMN_SCAN) {
+            return columnarIndex.scan(plan.getCategory(), plan.getMinPrice(), plan.getMaxPrice());
+        }
+        List<String> indexes = plan.getIndexes();
+        Collection<String> driver = ids(plan, indexes.get(0));
+        if (indexes.size() == 1) {
+            return driver;
+        }
+        List<Collection<String>> others = new ArrayList<>();
+        for (int i = 1; i < indexes.size(); i++) {
+            others.add(ids(plan, indexes.get(i)));
+        }
+        Set<String> result = new HashSet<>();
+        for (String id : driver) {
+            boolean inAll = true;
+            for (int i = 0; i < others.size() && inAll; i++) {
+                inAll = others.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+    
+    private Collection<String> ids(QueryPlan plan, String index) {
+        switch (index) {
+            case QueryPlan.NAME:
+                return nameIndex.candidates(plan.getNormalizedName());
+            case QueryPlan.CATEGORY:
+                return categoryIndex.get(plan.getCategory());
+            case QueryPlan.PRICE:
+                return priceIndex.range(plan.getMinPrice(), plan.getMaxPrice());
+            default:
+                return Collections.emptySet();
+        }
+    }
+}
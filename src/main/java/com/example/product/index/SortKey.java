@@ -0,0 +1,42 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+
+import java.util.Comparator;
+
+/**
+ * 分页排序字段，排序都以ID作为最后一级，保证顺序稳定
+ */
+public enum SortKey {
+    ID(Comparator.comparing(Product::getId)),
+    PRICE(Comparator.comparing(Product::getPrice).thenComparing(Product::getId));
+    
+    private final Comparator<Product> comparator;
+    
+    SortKey(Comparator<Product> comparator) {
+        this.comparator = comparator;
+    }
+    
+    /**
+     * 升序比较器
+     * @return 比较器
+     */
+    public Comparator<Product> comparator() {
+        return comparator;
+    }
+    
+    /**
+     * 解析排序字段，不区分大小写
+     * @param value 字段名，如 id、price
+     * @return 排序字段
+     * @throws IllegalArgumentException 不支持的字段
+     */
+    public static SortKey parse(String value) {
+        for (SortKey key : values()) {
+            if (key.name().equalsIgnoreCase(value)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("不支持的排序字段: " + value);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.product.model;
 
+import com.example.product.util.StringDictionary;
+
 import java.util.Objects;
 
 /**
@@ -12,6 +14,10 @@ public class Product {
     private Double price;
     private Integer stock;
     private String category;
+    // 品牌，与分类一样取值很少，都经过共享字典，相同的值只保留一个实例
+    private String brand;
+    // 最后一次修改该产品的序号，由存储在提交时设置，客户端用它做条件更新
+    private Long version;
 
     public Product() {
     }
@@ -22,7 +28,17 @@ public class Product {
         this.description = description;
         this.price = price;
         this.stock = stock;
-        this.category = category;
+        this.category = StringDictionary.intern(category);
+    }
+
+    /**
+     * 复制构造函数
+     * @param source 被复制的产品
+     */
+    public Product(Product source) {
+        this(source.id, source.name, source.description, source.price, source.stock, source.category);
+        this.brand = source.brand;
+        this.version = source.version;
     }
 
     // Getters and Setters
@@ -71,13 +87,29 @@ public class Product {
     }
 
     public void setCategory(String category) {
-        this.category = category;
+        this.category = StringDictionary.intern(category);
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = StringDictionary.intern(brand);
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Product)) return false;
         Product product = (Product) o;
         return Objects.equals(id, product.id);
     }
@@ -96,6 +128,8 @@ public class Product {
                 ", price=" + price +
                 ", stock=" + stock +
                 ", category='" + category + '\'' +
+                ", brand='" + brand + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.example.product.model;
+
+import java.util.List;
+
+/**
+ * 产品分页结果
+ */
+public class ProductPage {
+    private List<Product> items;
+    private String nextCursor;
+
+    public ProductPage() {
+    }
+
+    public ProductPage(List<Product> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Product> items) {
+        this.items = items;
+    }
+
+    /**
+     * 下一页的游标，没有下一页时为null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.product.model;
+
+/**
+ * 产品统计结果：数量、库存合计、价格区间与均价、库存总价值
+ * 没有价格的产品计入数量和库存，不计入价格相关的统计
+ */
+public class ProductStats {
+    private long count;
+    private long totalStock;
+    private long pricedCount;
+    private double priceSum;
+    private double minPrice = Double.POSITIVE_INFINITY;
+    private double maxPrice = Double.NEGATIVE_INFINITY;
+    private double inventoryValue;
+
+    /**
+     * 计入一个产品
+     * @param price 价格，没有价格时为 NaN
+     * @param stock 库存
+     */
+    public void add(double price, int stock) {
+        count++;
+        totalStock += stock;
+        if (!Double.isNaN(price)) {
+            pricedCount++;
+            priceSum += price;
+            minPrice = Math.min(minPrice, price);
+            maxPrice = Math.max(maxPrice, price);
+            inventoryValue += price * stock;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalStock() {
+        return totalStock;
+    }
+
+    /**
+     * 最低价格，没有带价格的产品时为null
+     */
+    public Double getMinPrice() {
+        return pricedCount > 0 ? minPrice : null;
+    }
+
+    /**
+     * 最高价格，没有带价格的产品时为null
+     */
+    public Double getMaxPrice() {
+        return pricedCount > 0 ? maxPrice : null;
+    }
+
+    /**
+     * 平均价格，没有带价格的产品时为null
+     */
+    public Double getAveragePrice() {
+        return pricedCount > 0 ? priceSum / pricedCount : null;
+    }
+
+    /**
+     * 库存总价值（价格 × 库存之和）
+     */
+    public double getInventoryValue() {
+        return inventoryValue;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.example.product.util.StringDictionary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 二进制快照编解码
+ * 文件结构：
+ * <pre>
+ * 文件头  magic(int) version(int) count(int) dictOffset(long)
+ * 记录    length(int) id(str) name(str) description(str) flags(byte) price(double) stock(int) categoryCode(int) version(long)
+ *         brandCode(int)
+ * 字典    size(int) value(str) ...
+ * </pre>
+ * 字符串为 长度(int，-1 表示 null) + UTF-8 字节；分类和品牌共用一个字典，按出现顺序编码为字典下标，-1 表示 null；
+ * version 为-1表示没有版本号。旧文件的记录中没有 version 和 brandCode。
+ * 读取时整个文件内存映射，直接解码为 Product，不经过中间列表
+ */
+public final class BinarySnapshotCodec {
+
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    private static final byte HAS_PRICE = 1;
+    private static final byte HAS_STOCK = 2;
+
+    private BinarySnapshotCodec() {
+    }
+
+    /**
+     * 写入二进制快照并 fsync
+     * @param path 输出文件
+     * @param products 产品数据
+     * @return 写入的产品数量
+     * @throws IOException IO异常
+     */
+    public static int write(Path path, Collection<Product> products) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // 不关闭该流，否则会连同 channel 一起关闭
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.write(new byte[HEADER_SIZE]); // 文件头占位，写完后回填
+            long offset = HEADER_SIZE;
+
+            ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+            DataOutputStream record = new DataOutputStream(recordBuffer);
+            for (Product product : products) {
+                recordBuffer.reset();
+                writeString(record, product.getId());
+                writeString(record, product.getName());
+                writeString(record, product.getDescription());
+                byte flags = 0;
+                if (product.getPrice() != null) {
+                    flags |= HAS_PRICE;
+                }
+                if (product.getStock() != null) {
+                    flags |= HAS_STOCK;
+                }
+                record.writeByte(flags);
+                record.writeDouble(product.getPrice() != null ? product.getPrice() : 0);
+                record.writeInt(product.getStock() != null ? product.getStock() : 0);
+                record.writeInt(code(dictionary, product.getCategory()));
+                record.writeLong(product.getVersion() != null ? product.getVersion() : -1);
+                record.writeInt(code(dictionary, product.getBrand()));
+
+                out.writeInt(recordBuffer.size());
+                recordBuffer.writeTo(out);
+                offset += 4 + recordBuffer.size();
+                count++;
+            }
+
+            out.writeInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                writeString(out, value);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putLong(offset);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        return count;
+    }
+
+    /**
+     * 读取二进制快照，每解码一个产品就交给 sink
+     * @param path 快照文件
+     * @param sink 产品处理函数
+     * @return 读取的产品数量
+     * @throws IOException 文件损坏或IO异常
+     */
+    public static int read(Path path, Consumer<Product> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("二进制快照超过 2GB，无法整体映射: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return decode(buffer, sink);
+            } catch (RuntimeException e) {
+                throw new IOException("二进制快照文件损坏: " + path, e);
+            }
+        }
+    }
+
+    private static int decode(ByteBuffer buffer, Consumer<Product> sink) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("不是有效的二进制快照文件");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的二进制快照版本: " + version);
+        }
+        int count = buffer.getInt();
+        long dictOffset = buffer.getLong();
+
+        byte[][] scratch = new byte[1][256];
+        buffer.position((int) dictOffset);
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = StringDictionary.intern(readString(buffer, scratch));
+        }
+
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            Product product = new Product();
+            product.setId(readString(buffer, scratch));
+            product.setName(readString(buffer, scratch));
+            product.setDescription(readString(buffer, scratch));
+            byte flags = buffer.get();
+            double price = buffer.getDouble();
+            int stock = buffer.getInt();
+            int categoryCode = buffer.getInt();
+            if ((flags & HAS_PRICE) != 0) {
+                product.setPrice(price);
+            }
+            if ((flags & HAS_STOCK) != 0) {
+                product.setStock(stock);
+            }
+            if (categoryCode >= 0) {
+                product.setCategory(dictionary[categoryCode]);
+            }
+            if (buffer.position() + 8 <= end) {
+                long productVersion = buffer.getLong();
+                if (productVersion >= 0) {
+                    product.setVersion(productVersion);
+                }
+            }
+            if (buffer.position() + 4 <= end) {
+                int brandCode = buffer.getInt();
+                if (brandCode >= 0) {
+                    product.setBrand(dictionary[brandCode]);
+                }
+            }
+            // 跳过新版本可能追加的字段
+            buffer.position(end);
+            sink.accept(product);
+        }
+        return count;
+    }
+
+    private static int code(Map<String, Integer> dictionary, String value) {
+        return value == null ? -1 : dictionary.computeIfAbsent(value, key -> dictionary.size());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[][] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (scratch[0].length < length) {
+            scratch[0] = new byte[Math.max(length, scratch[0].length * 2)];
+        }
+        buffer.get(scratch[0], 0, length);
+        return new String(scratch[0], 0, length, StandardCharsets.UTF_8);
+    }
+}
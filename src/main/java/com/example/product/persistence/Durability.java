@@ -0,0 +1,21 @@
+package com.example.product.persistence;
+
+/**
+ * 写入的持久化级别
+ */
+public enum Durability {
+    /**
+     * 修改进入刷盘队列后立即返回
+     */
+    ASYNC,
+
+    /**
+     * 等待所在批次写入文件（操作系统缓存）后返回
+     */
+    FLUSH,
+
+    /**
+     * 等待所在批次写入并 fsync 到磁盘后返回
+     */
+    FSYNC
+}
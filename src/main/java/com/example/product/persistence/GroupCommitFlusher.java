@@ -0,0 +1,161 @@
+package com.example.product.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 组提交刷盘线程
+ * 写入方只把日志记录放入队列，由单个后台线程把一个时间窗口内（或达到批大小）
+ * 到达的所有记录合并成一次文件写入
+ */
+public class GroupCommitFlusher implements Closeable {
+
+    /**
+     * 批量写入目标
+     */
+    public interface BatchWriter {
+        /**
+         * 写入一个批次
+         * @param records 批次内的记录，按提交顺序排列
+         * @param sync 是否需要 fsync
+         * @throws IOException IO异常
+         */
+        void write(List<JournalRecord> records, boolean sync) throws IOException;
+    }
+
+    private static class Pending {
+        final JournalRecord record;
+        final Durability durability;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(JournalRecord record, Durability durability) {
+            this.record = record;
+            this.durability = durability;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final BatchWriter writer;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // 统计信息
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong recordCount = new AtomicLong();
+
+    public GroupCommitFlusher(BatchWriter writer, long windowMillis, int maxBatchSize) {
+        this.writer = writer;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.thread = new Thread(this::run, "product-flusher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 提交一条记录
+     * 同一线程（或在同一把锁内）的提交顺序即写入顺序
+     * @param record 日志记录
+     * @param durability 持久化级别
+     * @return 记录达到要求的持久化级别后完成的 Future
+     */
+    public CompletableFuture<Void> submit(JournalRecord record, Durability durability) {
+        if (!running) {
+            throw new IllegalStateException("刷盘线程已关闭");
+        }
+        Pending pending = new Pending(record, durability);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 在时间窗口内继续收集记录，直到达到批大小
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 关闭时被中断，继续把队列中剩余的记录写完
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<JournalRecord> records = new ArrayList<>(batch.size());
+        boolean sync = false;
+        for (Pending pending : batch) {
+            records.add(pending.record);
+            sync |= pending.durability == Durability.FSYNC;
+        }
+        try {
+            writer.write(records, sync);
+            batchCount.incrementAndGet();
+            recordCount.addAndGet(records.size());
+            for (Pending pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (Exception e) {
+            System.err.println("批量写入数据时出错: " + e.getMessage());
+            e.printStackTrace();
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 已写入的批次数
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * 已写入的记录数
+     */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * 停止接收新记录，写完队列中剩余的记录后退出
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 日志记录
+ * 每次修改对应一条记录，记录的是修改后的完整产品数据而不是增量，
+ * 因此重放是幂等的
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalRecord {
+
+    /**
+     * 记录类型
+     */
+    public enum Op {
+        ADD, UPDATE, DELETE, BATCH
+    }
+
+    private long seq;
+    private Op op;
+    private List<Product> products;
+    private List<String> ids;
+
+    public JournalRecord() {
+    }
+
+    private JournalRecord(Op op, List<Product> products, List<String> ids) {
+        this.op = op;
+        this.products = products;
+        this.ids = ids;
+    }
+
+    public static JournalRecord add(Product product) {
+        return new JournalRecord(Op.ADD, Collections.singletonList(product), null);
+    }
+
+    public static JournalRecord update(Product product) {
+        return new JournalRecord(Op.UPDATE, Collections.singletonList(product), null);
+    }
+
+    public static JournalRecord delete(String id) {
+        return new JournalRecord(Op.DELETE, null, Collections.singletonList(id));
+    }
+
+    public static JournalRecord batch(List<Product> products) {
+        return new JournalRecord(Op.BATCH, products, null);
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public void setOp(Op op) {
+        this.op = op;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+}
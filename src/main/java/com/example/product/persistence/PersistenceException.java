@@ -0,0 +1,13 @@
+package com.example.product.persistence;
+
+/**
+ * 修改未能达到要求的持久化级别（写入日志、fsync 或写入快照失败）
+ * 修改已经在内存中生效，但调用方不能认为它已经保存；
+ * 之后服务拒绝所有修改（同样抛出此异常），文件保持在最后一次成功写入的状态，重启后从文件恢复
+ */
+public class PersistenceException extends RuntimeException {
+
+    public PersistenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.product.persistence;
+
+/**
+ * 持久化模式
+ */
+public enum PersistenceMode {
+    /**
+     * 每次修改都重写整个快照文件（原有行为）
+     */
+    SNAPSHOT,
+
+    /**
+     * 每次修改只向日志文件追加一条记录，快照仅在检查点时重写
+     */
+    JOURNAL
+}
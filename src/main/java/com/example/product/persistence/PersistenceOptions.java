@@ -0,0 +1,107 @@
+package com.example.product.persistence;
+
+/**
+ * 持久化配置
+ * 通过 product.persistence.* 属性绑定
+ */
+public class PersistenceOptions {
+
+    // 快照文件路径
+    private String dataFile = "products.json";
+
+    // 日志文件路径，为空时使用 快照文件路径 + ".journal"
+    private String journalFile;
+
+    // 快照文件格式
+    private SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+
+    // JSON 快照的加载线程数，大于1时并行解析
+    private int loaderThreads = 1;
+
+    // 持久化模式
+    private PersistenceMode mode = PersistenceMode.JOURNAL;
+
+    // 日志记录数达到该值时写入新快照并清空日志
+    private int checkpointThreshold = 10000;
+
+    // 组提交的时间窗口（毫秒），窗口内到达的修改合并为一次写入
+    private long flushWindowMillis = 5;
+
+    // 单个批次最多合并的修改数
+    private int maxBatchSize = 1000;
+
+    // 未指定时写入操作使用的持久化级别
+    private Durability defaultDurability = Durability.FLUSH;
+
+    public String getDataFile() {
+        return dataFile;
+    }
+
+    public void setDataFile(String dataFile) {
+        this.dataFile = dataFile;
+    }
+
+    public String getJournalFile() {
+        return journalFile != null ? journalFile : dataFile + ".journal";
+    }
+
+    public void setJournalFile(String journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    public int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    public void setLoaderThreads(int loaderThreads) {
+        this.loaderThreads = loaderThreads;
+    }
+
+    public PersistenceMode getMode() {
+        return mode;
+    }
+
+    public void setMode(PersistenceMode mode) {
+        this.mode = mode;
+    }
+
+    public int getCheckpointThreshold() {
+        return checkpointThreshold;
+    }
+
+    public void setCheckpointThreshold(int checkpointThreshold) {
+        this.checkpointThreshold = checkpointThreshold;
+    }
+
+    public long getFlushWindowMillis() {
+        return flushWindowMillis;
+    }
+
+    public void setFlushWindowMillis(long flushWindowMillis) {
+        this.flushWindowMillis = flushWindowMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Durability getDefaultDurability() {
+        return defaultDurability;
+    }
+
+    public void setDefaultDurability(Durability defaultDurability) {
+        this.defaultDurability = defaultDurability;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.product.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 只追加的产品日志
+ * 每条记录占一行（JSON），写入成本只与本次修改的数据量有关。
+ * 日志按段存放（基础文件名.000001、.000002 ...），压缩时切换到新段，
+ * 旧段在快照写入完成后删除
+ */
+public class ProductJournal implements Closeable {
+
+    private final Path directory;
+    private final String baseName;
+    private final ObjectMapper objectMapper;
+
+    // 当前追加的段
+    private long activeSegment;
+    private FileChannel channel;
+
+    // 下一条记录的写入位置
+    private long writePosition;
+
+    // 当前段中的记录数
+    private long recordCount;
+
+    // 已写入或重放的最大序号
+    private long lastSeq;
+
+    // 写入失败且无法截断写了一半的记录时记录原因，之后拒绝追加
+    private IOException failure;
+
+    /**
+     * @param basePath 日志基础路径，段文件在其后追加序号
+     * @param objectMapper JSON序列化工具
+     * @throws IOException IO异常
+     */
+    public ProductJournal(Path basePath, ObjectMapper objectMapper) throws IOException {
+        Path absolute = basePath.toAbsolutePath();
+        this.directory = absolute.getParent();
+        this.baseName = absolute.getFileName().toString();
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directory);
+
+        List<Long> segments = listSegments();
+        this.activeSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        openActiveSegment();
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s.%06d", baseName, segment));
+    }
+
+    private void openActiveSegment() throws IOException {
+        channel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writePosition = channel.size();
+        recordCount = 0;
+    }
+
+    /**
+     * 列出磁盘上的所有段，按序号升序
+     */
+    private List<Long> listSegments() throws IOException {
+        String prefix = baseName + ".";
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d+"))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(prefix.length()))));
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * 按顺序重放所有段中序号大于 afterSeq 的记录
+     * 当前段末尾不完整的记录（写入途中崩溃）会被丢弃并从文件中截断
+     * @param afterSeq 快照已包含的最大序号
+     * @param consumer 记录处理函数
+     * @return 重放的记录数
+     * @throws IOException IO异常
+     */
+    public synchronized long replay(long afterSeq, Consumer<JournalRecord> consumer) throws IOException {
+        long applied = 0;
+        for (long segment : listSegments()) {
+            long[] counts = new long[2];
+            Consumer<JournalRecord> filter = record -> {
+                counts[1]++;
+                lastSeq = Math.max(lastSeq, record.getSeq());
+                if (record.getSeq() > afterSeq) {
+                    consumer.accept(record);
+                    counts[0]++;
+                }
+            };
+            if (segment != activeSegment) {
+                try (InputStream in = Files.newInputStream(segmentPath(segment))) {
+                    readRecords(in, filter);
+                }
+            } else {
+                channel.position(0);
+                // 不关闭该流，否则会连同 channel 一起关闭
+                long validEnd = readRecords(Channels.newInputStream(channel), filter);
+                if (validEnd < channel.size()) {
+                    channel.truncate(validEnd);
+                }
+                writePosition = validEnd;
+                recordCount = counts[1];
+            }
+            applied += counts[0];
+        }
+        return applied;
+    }
+
+    /**
+     * 逐行解析记录
+     * @return 最后一条完整记录之后的偏移量
+     */
+    private long readRecords(InputStream input, Consumer<JournalRecord> consumer) throws IOException {
+        InputStream in = new BufferedInputStream(input);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long offset = 0;
+        long validEnd = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            offset++;
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            if (line.size() > 0) {
+                JournalRecord record;
+                try {
+                    record = objectMapper.readValue(line.toByteArray(), JournalRecord.class);
+                } catch (IOException e) {
+                    System.err.println("日志记录损坏，从偏移量 " + validEnd + " 处截断: " + e.getMessage());
+                    break;
+                }
+                consumer.accept(record);
+            }
+            validEnd = offset;
+            line.reset();
+        }
+        return validEnd;
+    }
+
+    /**
+     * 追加一条记录
+     * @param record 日志记录
+     * @throws IOException IO异常
+     */
+    public void append(JournalRecord record) throws IOException {
+        appendAll(Collections.singletonList(record));
+    }
+
+    /**
+     * 用一次写入追加多条记录
+     * 写入中途失败时把段截断回写入前的长度，写了一半的记录不会留在文件中，
+     * 否则重放时会在这里停止并丢弃之后追加的所有记录；截断也失败时日志不再接受追加
+     * @param records 日志记录
+     * @throws IOException IO异常
+     */
+    public synchronized void appendAll(List<JournalRecord> records) throws IOException {
+        if (failure != null) {
+            throw new IOException("日志写入失败后未能恢复，不再接受追加", failure);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (JournalRecord record : records) {
+            objectMapper.writeValue(out, record);
+            out.write('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        long start = writePosition;
+        try {
+            while (buffer.hasRemaining()) {
+                writePosition += write(buffer, writePosition);
+            }
+        } catch (IOException e) {
+            writePosition = start;
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+                failure = e;
+            }
+            throw e;
+        }
+        recordCount += records.size();
+        for (JournalRecord record : records) {
+            lastSeq = Math.max(lastSeq, record.getSeq());
+        }
+    }
+
+    /**
+     * 在指定位置写入缓冲区中的数据
+     * @return 写入的字节数
+     */
+    int write(ByteBuffer buffer, long position) throws IOException {
+        return channel.write(buffer, position);
+    }
+
+    /**
+     * 将已写入的记录强制刷到磁盘
+     * @throws IOException IO异常
+     */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * 封存当前段并切换到新段
+     * @return 新段的序号，小于它的段都已封存
+     * @throws IOException IO异常
+     */
+    public synchronized long rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        activeSegment++;
+        openActiveSegment();
+        return activeSegment;
+    }
+
+    /**
+     * 删除序号小于 segment 的所有段（快照已包含其中全部记录之后调用）
+     * @param segment 段序号
+     * @throws IOException IO异常
+     */
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long existing : listSegments()) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    /**
+     * 当前段中的记录数
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 已写入或重放的最大序号
+     */
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
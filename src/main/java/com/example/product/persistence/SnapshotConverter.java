@@ -0,0 +1,86 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON 快照与二进制快照互相转换
+ * 用法: java ... SnapshotConverter json-to-binary products.json products.bin
+ *       java ... SnapshotConverter binary-to-json products.bin products.json
+ */
+public final class SnapshotConverter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private SnapshotConverter() {
+    }
+
+    /**
+     * JSON 快照转换为二进制快照
+     * @param jsonFile JSON 文件
+     * @param binaryFile 二进制文件
+     * @return 转换的产品数量
+     * @throws IOException IO异常
+     */
+    public static int jsonToBinary(Path jsonFile, Path binaryFile) throws IOException {
+        List<Product> products = new ArrayList<>();
+        new StreamingJsonLoader(OBJECT_MAPPER).load(jsonFile, products::add, 1);
+        return BinarySnapshotCodec.write(binaryFile, products);
+    }
+
+    /**
+     * 二进制快照转换为 JSON 快照
+     * @param binaryFile 二进制文件
+     * @param jsonFile JSON 文件
+     * @return 转换的产品数量
+     * @throws IOException IO异常
+     */
+    public static int binaryToJson(Path binaryFile, Path jsonFile) throws IOException {
+        try (OutputStream out = Files.newOutputStream(jsonFile);
+             JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            IOException[] failure = new IOException[1];
+            int count = BinarySnapshotCodec.read(binaryFile, product -> {
+                try {
+                    generator.writeObject(product);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            generator.writeEndArray();
+            return count;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("用法: SnapshotConverter json-to-binary|binary-to-json <输入文件> <输出文件>");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[1]);
+        Path output = Paths.get(args[2]);
+        int count;
+        if ("json-to-binary".equals(args[0])) {
+            count = jsonToBinary(input, output);
+        } else if ("binary-to-json".equals(args[0])) {
+            count = binaryToJson(input, output);
+        } else {
+            throw new IllegalArgumentException("未知的转换方向: " + args[0]);
+        }
+        System.out.println("成功转换 " + count + " 个产品数据: " + input + " -> " + output);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.product.persistence;
+
+/**
+ * 快照文件格式
+ */
+public enum SnapshotFormat {
+    /**
+     * JSON 数组（与 products.json 兼容）
+     */
+    JSON,
+
+    /**
+     * 紧凑二进制格式，见 {@link BinarySnapshotCodec}
+     */
+    BINARY
+}
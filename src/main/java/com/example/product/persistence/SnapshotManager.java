@@ -0,0 +1,145 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 快照管理
+ * 快照先写入临时文件并 fsync，再原子重命名为正式文件，崩溃时不会留下半个快照。
+ * 快照包含的最大日志序号记录在旁边的 .meta 文件中。
+ * 快照可以是 JSON 或二进制格式，见 {@link SnapshotFormat}
+ */
+public class SnapshotManager {
+
+    private final Path dataFile;
+    private final Path tempFile;
+    private final Path metaFile;
+    private final SnapshotFormat format;
+    private final ObjectMapper objectMapper;
+
+    // 当前快照包含的最大日志序号
+    private volatile long snapshotSeq;
+
+    // JSON 快照的加载线程数
+    private final int loaderThreads;
+
+    public SnapshotManager(Path dataFile, SnapshotFormat format, ObjectMapper objectMapper) {
+        this(dataFile, format, objectMapper, 1);
+    }
+
+    public SnapshotManager(Path dataFile, SnapshotFormat format, ObjectMapper objectMapper, int loaderThreads) {
+        this.dataFile = dataFile.toAbsolutePath();
+        this.tempFile = this.dataFile.resolveSibling(this.dataFile.getFileName() + ".tmp");
+        this.metaFile = this.dataFile.resolveSibling(this.dataFile.getFileName() + ".meta");
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.loaderThreads = loaderThreads;
+    }
+
+    /**
+     * 加载快照
+     * @param sink 产品处理函数，每读到一个产品调用一次；多线程加载时会被并发调用
+     * @return 加载的产品数量，快照不存在时返回0
+     * @throws IOException 快照存在但无法解析
+     */
+    public long load(Consumer<Product> sink) throws IOException {
+        // 上次写入途中崩溃留下的临时文件，正式快照仍然完整
+        Files.deleteIfExists(tempFile);
+        Files.deleteIfExists(metaFile.resolveSibling(metaFile.getFileName() + ".tmp"));
+
+        if (Files.exists(metaFile)) {
+            Map<String, Object> meta = objectMapper.readValue(metaFile.toFile(), new TypeReference<Map<String, Object>>() {});
+            snapshotSeq = ((Number) meta.get("seq")).longValue();
+        }
+        if (!Files.exists(dataFile)) {
+            return 0;
+        }
+        if (format == SnapshotFormat.BINARY) {
+            return BinarySnapshotCodec.read(dataFile, sink);
+        }
+        return new StreamingJsonLoader(objectMapper).load(dataFile, sink, loaderThreads);
+    }
+
+    /**
+     * 原子地写入新快照
+     * @param products 产品数据，写入时逐个序列化，不额外复制
+     * @param seq 快照包含的最大日志序号
+     * @throws IOException IO异常
+     */
+    public synchronized void write(Collection<Product> products, long seq) throws IOException {
+        int count;
+        if (format == SnapshotFormat.BINARY) {
+            count = BinarySnapshotCodec.write(tempFile, products);
+        } else {
+            try (FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+                count = writeProducts(out, products);
+                out.getFD().sync();
+            }
+        }
+        Files.move(tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("seq", seq);
+        meta.put("count", count);
+        meta.put("timestamp", System.currentTimeMillis());
+        Path metaTemp = metaFile.resolveSibling(metaFile.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(metaTemp.toFile())) {
+            objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, meta);
+            out.getFD().sync();
+        }
+        Files.move(metaTemp, metaFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        snapshotSeq = seq;
+    }
+
+    private int writeProducts(OutputStream out, Collection<Product> products) throws IOException {
+        int count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            for (Product product : products) {
+                generator.writeObject(product);
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+
+    /**
+     * 对目录 fsync，保证重命名本身已落盘
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(dataFile.getParent(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 部分平台不支持对目录 fsync，忽略
+        }
+    }
+
+    /**
+     * 当前快照包含的最大日志序号
+     */
+    public long getSnapshotSeq() {
+        return snapshotSeq;
+    }
+
+    public Path getDataFile() {
+        return dataFile;
+    }
+}
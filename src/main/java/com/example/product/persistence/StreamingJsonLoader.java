@@ -0,0 +1,128 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * 流式 JSON 快照加载器
+ * 基于 JsonParser 逐个解析数组元素并立即交给 sink，不生成中间列表。
+ * 多线程模式下由当前线程切分词法单元，工作线程并行绑定为 Product
+ */
+public class StreamingJsonLoader {
+
+    // 每个并行任务包含的产品数
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader productReader;
+
+    public StreamingJsonLoader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.productReader = objectMapper.readerFor(Product.class);
+    }
+
+    /**
+     * 加载 JSON 数组文件
+     * @param file JSON 文件
+     * @param sink 产品处理函数，多线程模式下会被并发调用
+     * @param threads 绑定线程数，小于等于1时单线程加载
+     * @return 加载的产品数量
+     * @throws IOException 文件格式错误或IO异常
+     */
+    public long load(Path file, Consumer<Product> sink, int threads) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("快照文件格式错误: 顶层不是数组");
+            }
+            return threads <= 1 ? loadSerial(parser, sink) : loadParallel(parser, sink, threads);
+        }
+    }
+
+    private long loadSerial(JsonParser parser, Consumer<Product> sink) throws IOException {
+        long count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            sink.accept(productReader.readValue(parser));
+            count++;
+        }
+        checkEnd(parser);
+        return count;
+    }
+
+    private long loadParallel(JsonParser parser, Consumer<Product> sink, int threads) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "product-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 限制已切分但尚未绑定的块数，控制内存占用
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        long count = 0;
+        try {
+            List<TokenBuffer> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                TokenBuffer buffer = new TokenBuffer(parser);
+                buffer.copyCurrentStructure(parser);
+                chunk.add(buffer);
+                count++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    futures.add(submit(workers, inFlight, chunk, sink));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            checkEnd(parser);
+            if (!chunk.isEmpty()) {
+                futures.add(submit(workers, inFlight, chunk, sink));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("加载快照时被中断", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return count;
+    }
+
+    private Future<?> submit(ExecutorService workers, Semaphore inFlight, List<TokenBuffer> chunk,
+                             Consumer<Product> sink) throws InterruptedException {
+        inFlight.acquire();
+        return workers.submit(() -> {
+            try {
+                for (TokenBuffer buffer : chunk) {
+                    try (JsonParser element = buffer.asParser(objectMapper)) {
+                        sink.accept(productReader.readValue(element));
+                    }
+                }
+                return null;
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void checkEnd(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IOException("快照文件格式错误: 数组元素不是对象");
+        }
+    }
+}
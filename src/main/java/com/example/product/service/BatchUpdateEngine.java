@@ -0,0 +1,153 @@
+package com.example.product.service;
+
+import com.example.product.model.Product;
+import com.example.product.store.ProductStore;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 批量修改引擎
+ * 分两个阶段执行：先在 ForkJoin 线程池中按ID分段并行读取已公开的版本，在副本上完成修改，不持有任何锁；
+ * 再由调用方在写锁内校验每个产品的版本号（乐观并发控制），读取之后被其他写入修改过的产品按最新版本重新计算，
+ * 因此重叠的批次和单个修改不会丢失更新
+ */
+class BatchUpdateEngine {
+    
+    // 每个子任务处理的最少ID数，小于它的批次直接在调用线程中计算
+    static final int SPLIT_THRESHOLD = 2048;
+    
+    private final ProductStore store;
+    
+    private final ForkJoinPool pool;
+    
+    BatchUpdateEngine(ProductStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+    
+    /**
+     * 准备批量修改，并行计算每个产品修改后的副本
+     * @param productIds 产品ID列表，同一ID出现多次时依次修改多次
+     * @param applicable 产品是否可以修改
+     * @param change 对副本的修改
+     * @return 每个不同ID的修改，顺序与第一次出现的顺序一致
+     */
+    List<Change> prepare(List<String> productIds, Predicate<Product> applicable, Consumer<Product> change) {
+        Map<String, Integer> occurrences = new LinkedHashMap<>();
+        for (String id : productIds) {
+            if (id != null) {
+                occurrences.merge(id, 1, Integer::sum);
+            }
+        }
+        Change[] changes = new Change[occurrences.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : occurrences.entrySet()) {
+            changes[i++] = new Change(entry.getKey(), entry.getValue(), applicable, change);
+        }
+        PrepareTask task = new PrepareTask(changes, 0, changes.length);
+        if (changes.length <= SPLIT_THRESHOLD) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        List<Change> result = new ArrayList<>(changes.length);
+        for (Change prepared : changes) {
+            result.add(prepared);
+        }
+        return result;
+    }
+    
+    /**
+     * 校验准备好的修改，读取之后版本号变化的产品按最新版本重新计算，调用方需持有写锁
+     * @param changes prepare 返回的修改
+     * @return 重新计算的产品数
+     */
+    int revalidate(List<Change> changes) {
+        int conflicts = 0;
+        for (Change change : changes) {
+            if (store.latestSeq(change.id) != change.baseSeq) {
+                change.computeFrom(store.latest(change.id), store.latestSeq(change.id));
+                conflicts++;
+            }
+        }
+        return conflicts;
+    }
+    
+    /**
+     * 按ID范围二分的并行任务
+     */
+    private class PrepareTask extends RecursiveAction {
+        
+        private final Change[] changes;
+        private final int from;
+        private final int to;
+        
+        PrepareTask(Change[] changes, int from, int to) {
+            this.changes = changes;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    ProductStore.Version version = store.getVersion(changes[i].id);
+                    changes[i].computeFrom(version != null ? version.getProduct() : null,
+                            version != null ? version.getSeq() : -1);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PrepareTask(changes, from, middle), new PrepareTask(changes, middle, to));
+        }
+    }
+    
+    /**
+     * 一个产品的修改
+     */
+    static final class Change {
+        
+        final String id;
+        private final int times;
+        private final Predicate<Product> applicable;
+        private final Consumer<Product> change;
+        
+        // 计算所基于的版本序号，产品不存在时为-1
+        long baseSeq = -1;
+        
+        // 修改后的副本，产品不存在或不可修改时为null
+        Product product;
+        
+        // 产品是否存在
+        boolean found;
+        
+        Change(String id, int times, Predicate<Product> applicable, Consumer<Product> change) {
+            this.id = id;
+            this.times = times;
+            this.applicable = applicable;
+            this.change = change;
+        }
+        
+        void computeFrom(Product current, long seq) {
+            baseSeq = seq;
+            found = current != null;
+            product = null;
+            if (current == null) {
+                return;
+            }
+            Product copy = new Product(current);
+            for (int i = 0; i < times && applicable.test(copy); i++) {
+                change.accept(copy);
+                product = copy;
+            }
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package com.example.product.service;
 
-import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+import com.example.product.store.StoreSnapshot;
+import com.example.product.util.CsvUtil;
 import com.example.product.util.ExcelUtil;
+import com.example.product.util.NdjsonUtil;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 
 /**
  * Excel导出服务类
- * 实现将产品数据导出到Excel文件的功能
+ * 实现将产品数据导出到Excel文件的功能，也支持CSV和NDJSON格式
  */
 public class ExcelExportService {
     
@@ -20,68 +23,76 @@ public class ExcelExportService {
     }
     
     /**
-     * 导出所有产品到Excel文件
-     * @param filePath 输出文件路径
-     * @return 导出是否成功
+     * 导出所有产品，直接写入输出流（如HTTP响应），不生成中间文件
+     * @param out 输出流，不会被关闭
+     * @throws IOException IO异常
      */
-    public boolean exportAllProducts(String filePath) {
-        try {
-            List<ExcelProduct> products = productService.getAllProducts().stream()
-                    .map(this::convertToExcelProduct)
-                    .collect(Collectors.toList());
-            
-            ExcelUtil.writeProductsToExcel(products, filePath);
-            return true;
-        } catch (IOException e) {
-            System.err.println("导出Excel文件失败: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            System.err.println("导出过程中发生未知错误: " + e.getMessage());
-            return false;
+    public void exportAllProducts(OutputStream out) throws IOException {
+        try (StoreSnapshot products = productService.snapshot()) {
+            ExcelUtil.writeProductsToExcel(products, out);
         }
     }
     
     /**
-     * 导出筛选后的产品到Excel文件
-     * @param filePath 输出文件路径
+     * 导出筛选后的产品，直接写入输出流（如HTTP响应），不生成中间文件
+     * @param out 输出流，不会被关闭
      * @param name 产品名称（模糊匹配）
      * @param category 产品分类
      * @param minPrice 最低价格
      * @param maxPrice 最高价格
-     * @return 导出是否成功
+     * @throws IOException IO异常
      */
-    public boolean exportFilteredProducts(String filePath, String name, String category, 
-                                         Double minPrice, Double maxPrice) {
-        try {
-            List<ExcelProduct> products = productService.searchProducts(name, category, minPrice, maxPrice)
-                    .stream()
-                    .map(this::convertToExcelProduct)
-                    .collect(Collectors.toList());
-            
-            ExcelUtil.writeProductsToExcel(products, filePath);
-            return true;
-        } catch (IOException e) {
-            System.err.println("导出Excel文件失败: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            System.err.println("导出过程中发生未知错误: " + e.getMessage());
-            return false;
+    public void exportFilteredProducts(OutputStream out, String name, String category,
+                                       Double minPrice, Double maxPrice) throws IOException {
+        ExcelUtil.writeProductsToExcel(productService.searchProducts(name, category, minPrice, maxPrice), out);
+    }
+    
+    /**
+     * 导出产品为CSV，列与Excel导出相同，未指定条件时导出全部产品
+     * @param out 输出流，不会被关闭
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @throws IOException IO异常
+     */
+    public void exportProductsToCsv(OutputStream out, String name, String category,
+                                    Double minPrice, Double maxPrice) throws IOException {
+        writeSelected(name, category, minPrice, maxPrice, products -> CsvUtil.writeProductsToCsv(products, Channels.newChannel(out)));
+    }
+    
+    /**
+     * 导出产品为NDJSON，每行一个产品JSON对象，未指定条件时导出全部产品
+     * @param out 输出流，不会被关闭
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @throws IOException IO异常
+     */
+    public void exportProductsToNdjson(OutputStream out, String name, String category,
+                                       Double minPrice, Double maxPrice) throws IOException {
+        writeSelected(name, category, minPrice, maxPrice, products -> NdjsonUtil.writeProductsToNdjson(products, Channels.newChannel(out)));
+    }
+    
+    /**
+     * 没有筛选条件时直接遍历产品快照，否则按条件查询
+     */
+    private void writeSelected(String name, String category, Double minPrice, Double maxPrice,
+                               ProductsWriter writer) throws IOException {
+        if (name == null && category == null && minPrice == null && maxPrice == null) {
+            try (StoreSnapshot products = productService.snapshot()) {
+                writer.write(products);
+            }
+            return;
         }
+        writer.write(productService.searchProducts(name, category, minPrice, maxPrice));
     }
     
     /**
-     * 将Product对象转换为ExcelProduct对象
-     * @param product Product对象
-     * @return ExcelProduct对象
+     * 把一组产品写成某种格式
      */
-    private ExcelProduct convertToExcelProduct(com.example.product.model.Product product) {
-        ExcelProduct excelProduct = new ExcelProduct();
-        excelProduct.setId(product.getId());
-        excelProduct.setName(product.getName());
-        excelProduct.setDescription(product.getDescription());
-        excelProduct.setPrice(product.getPrice());
-        excelProduct.setStock(product.getStock());
-        excelProduct.setCategory(product.getCategory());
-        return excelProduct;
+    private interface ProductsWriter {
+        void write(Iterable<? extends Product> products) throws IOException;
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,39 @@
 package com.example.product.service;
 
-import com.example.product.model.ExcelProduct;
+import com.example.product.util.CsvUtil;
 import com.example.product.util.ExcelUtil;
-import com.example.product.util.ValidationUtil;
+import com.example.product.util.NdjsonUtil;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Excel导入服务类
- * 实现从Excel文件读取产品数据并导入系统的功能
+ * 实现从Excel文件读取产品数据并导入系统的功能，也支持CSV和NDJSON格式
  */
 public class ExcelImportService {
     
+    // 默认每批提交的产品数
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    
     private ProductService productService;
     
+    // 每批提交的产品数
+    private int chunkSize;
+    
+    // 并行验证线程数
+    private int validatorThreads;
+    
     public ExcelImportService(ProductService productService) {
+        this(productService, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ExcelImportService(ProductService productService, int chunkSize, int validatorThreads) {
         this.productService = productService;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.validatorThreads = Math.max(1, validatorThreads);
     }
     
     /**
@@ -25,39 +42,42 @@ public class ExcelImportService {
      * @return 导入结果报告
      */
     public ImportResult importProductsFromExcel(String filePath) {
+        return runImport(consumer -> ExcelUtil.readProductsFromExcel(filePath, consumer), "Excel文件");
+    }
+    
+    /**
+     * 从CSV导入产品数据，列与Excel导入相同
+     * @param in CSV输入流（UTF-8编码），不需要先保存为文件
+     * @return 导入结果报告
+     */
+    public ImportResult importProductsFromCsv(InputStream in) {
+        ReadableByteChannel channel = Channels.newChannel(in);
+        return runImport(consumer -> CsvUtil.readProductsFromCsv(channel, consumer), "CSV数据");
+    }
+    
+    /**
+     * 从NDJSON导入产品数据，每行一个产品JSON对象
+     * @param in NDJSON输入流（UTF-8编码），不需要先保存为文件
+     * @return 导入结果报告
+     */
+    public ImportResult importProductsFromNdjson(InputStream in) {
+        ReadableByteChannel channel = Channels.newChannel(in);
+        return runImport(consumer -> NdjsonUtil.readProductsFromNdjson(channel, consumer), "NDJSON数据");
+    }
+    
+    /**
+     * 通过导入流水线导入数据，读取、验证、提交三个阶段并行执行
+     * @param source 数据读取操作
+     * @param sourceName 数据来源名称，用于错误信息
+     * @return 导入结果报告
+     */
+    private ImportResult runImport(ImportPipeline.RowSource source, String sourceName) {
         ImportResult result = new ImportResult();
         
         try {
-            // 从Excel文件读取产品数据
-            List<ExcelProduct> excelProducts = ExcelUtil.readProductsFromExcel(filePath);
-            result.setTotalRecords(excelProducts.size());
-            
-            // 逐条处理产品数据
-            for (ExcelProduct excelProduct : excelProducts) {
-                try {
-                    // 数据验证
-                    List<String> errors = ValidationUtil.validateProduct(excelProduct);
-                    if (!errors.isEmpty()) {
-                        result.addFailure(String.format("第%d行数据验证失败: %s", 
-                                excelProduct.getRowNumber(), String.join(", ", errors)));
-                        continue;
-                    }
-                    
-                    // 导入产品数据
-                    boolean success = productService.addProduct(excelProduct);
-                    if (success) {
-                        result.incrementSuccess();
-                    } else {
-                        result.addFailure(String.format("第%d行产品导入失败: 产品ID已存在或数据错误", 
-                                excelProduct.getRowNumber()));
-                    }
-                } catch (Exception e) {
-                    result.addFailure(String.format("第%d行数据处理异常: %s", 
-                            excelProduct.getRowNumber(), e.getMessage()));
-                }
-            }
+            new ImportPipeline(productService, chunkSize, validatorThreads).run(source, result);
         } catch (IOException e) {
-            result.setErrorMessage("读取Excel文件失败: " + e.getMessage());
+            result.setErrorMessage("读取" + sourceName + "失败: " + e.getMessage());
         } catch (Exception e) {
             result.setErrorMessage("导入过程中发生未知错误: " + e.getMessage());
         }
@@ -0,0 +1,284 @@
+package com.example.product.service;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.util.ValidationUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 流水线导入
+ * 读取 → 验证 → 提交 三个阶段通过有界队列连接：
+ * 读取阶段在调用线程上把行打包放入队列，多个验证线程并行验证，
+ * 单个提交线程按读取顺序把验证通过的行分批写入 ProductService。
+ * 队列已满时上游阻塞，内存占用与文件大小无关。
+ * 任一阶段异常退出（如等待队列时被中断）时记录原因，其余阶段在队列上等待时发现后随之退出，不会互相无限等待
+ */
+public class ImportPipeline {
+    
+    /**
+     * 行数据来源，每读到一行调用一次 consumer
+     */
+    public interface RowSource {
+        /**
+         * @param consumer 行处理函数
+         * @return 读取的行数
+         * @throws IOException IO异常
+         */
+        int read(Consumer<ExcelProduct> consumer) throws IOException;
+    }
+    
+    // 读取阶段每个队列元素包含的行数
+    private static final int ROW_BATCH_SIZE = 256;
+    
+    // 各阶段之间队列的容量（以行批次计）
+    private static final int QUEUE_CAPACITY = 16;
+    
+    // 队列结束标记的序号
+    private static final long END = -1;
+    
+    // 在队列上等待时检查是否已中止的间隔（毫秒）
+    private static final long POLL_INTERVAL_MS = 100;
+    
+    private static final class RowBatch {
+        final long seq;
+        final List<ExcelProduct> rows;
+        
+        RowBatch(long seq, List<ExcelProduct> rows) {
+            this.seq = seq;
+            this.rows = rows;
+        }
+    }
+    
+    private final ProductService productService;
+    private final int chunkSize;
+    private final int validatorThreads;
+    
+    public ImportPipeline(ProductService productService, int chunkSize, int validatorThreads) {
+        this.productService = productService;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.validatorThreads = Math.max(1, validatorThreads);
+    }
+    
+    /**
+     * 执行一次导入
+     * 读取阶段出错时，已读取的行（包括未满一批的行）仍会被验证和提交，然后抛出该异常
+     * @param source 行数据来源
+     * @param result 导入结果，失败信息按行号排序
+     * @throws IOException 读取异常
+     * @throws IllegalStateException 验证或提交阶段异常退出，导入被中止
+     */
+    public void run(RowSource source, ExcelImportService.ImportResult result) throws IOException {
+        BlockingQueue<RowBatch> rowQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<RowBatch> validQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Map<Integer, String> failures = new ConcurrentSkipListMap<>();
+        AtomicInteger successCount = new AtomicInteger();
+        // 第一个异常退出的阶段记录的原因
+        AtomicReference<Throwable> aborted = new AtomicReference<>();
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService validators = Executors.newFixedThreadPool(validatorThreads, runnable -> {
+            Thread thread = new Thread(runnable, "import-validator-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < validatorThreads; i++) {
+            validators.execute(() -> {
+                try {
+                    validate(rowQueue, validQueue, failures, aborted);
+                } catch (Throwable e) {
+                    aborted.compareAndSet(null, e);
+                }
+            });
+        }
+        Thread committer = new Thread(() -> {
+            try {
+                commit(validQueue, failures, successCount, aborted);
+            } catch (Throwable e) {
+                aborted.compareAndSet(null, e);
+            }
+        }, "import-committer");
+        committer.setDaemon(true);
+        committer.start();
+        
+        long[] seq = {0};
+        List<List<ExcelProduct>> current = new ArrayList<>();
+        current.add(new ArrayList<>(ROW_BATCH_SIZE));
+        try {
+            int total = source.read(row -> {
+                current.get(0).add(row);
+                if (current.get(0).size() >= ROW_BATCH_SIZE) {
+                    put(rowQueue, new RowBatch(seq[0]++, current.get(0)), aborted);
+                    current.set(0, new ArrayList<>(ROW_BATCH_SIZE));
+                }
+            });
+            result.setTotalRecords(total);
+        } finally {
+            try {
+                // 读取出错时也提交已读取但未满一批的行
+                if (!current.get(0).isEmpty()) {
+                    put(rowQueue, new RowBatch(seq[0], current.get(0)), aborted);
+                }
+                // 每个验证线程收到一个结束标记后退出，并向提交线程转发
+                for (int i = 0; i < validatorThreads; i++) {
+                    put(rowQueue, new RowBatch(END, null), aborted);
+                }
+            } catch (IllegalStateException e) {
+                // 导入已中止，其余阶段会自行退出
+            }
+            validators.shutdown();
+            try {
+                validators.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.compareAndSet(null, e);
+            }
+            for (int i = 0; i < successCount.get(); i++) {
+                result.incrementSuccess();
+            }
+            for (String failure : failures.values()) {
+                result.addFailure(failure);
+            }
+        }
+        checkAborted(aborted);
+    }
+    
+    /**
+     * 验证阶段：验证失败的行记入失败信息，其余行原样转发给提交阶段
+     */
+    private void validate(BlockingQueue<RowBatch> rowQueue, BlockingQueue<RowBatch> validQueue,
+                          Map<Integer, String> failures, AtomicReference<Throwable> aborted) {
+        while (true) {
+            RowBatch batch = take(rowQueue, aborted);
+            if (batch.seq == END) {
+                put(validQueue, batch, aborted);
+                return;
+            }
+            List<ExcelProduct> valid = new ArrayList<>(batch.rows.size());
+            for (ExcelProduct excelProduct : batch.rows) {
+                try {
+                    List<String> errors = ValidationUtil.validateProduct(excelProduct);
+                    if (errors.isEmpty()) {
+                        valid.add(excelProduct);
+                    } else {
+                        failures.put(excelProduct.getRowNumber(), String.format("第%d行数据验证失败: %s", 
+                                excelProduct.getRowNumber(), String.join(", ", errors)));
+                    }
+                } catch (Exception e) {
+                    failures.put(excelProduct.getRowNumber(), String.format("第%d行数据处理异常: %s", 
+                            excelProduct.getRowNumber(), e.getMessage()));
+                }
+            }
+            put(validQueue, new RowBatch(batch.seq, valid), aborted);
+        }
+    }
+    
+    /**
+     * 提交阶段：按读取顺序重排验证结果，攒满一批后调用一次批量写入
+     * 保证文件中同一ID出现多次时总是先出现的行被导入
+     */
+    private void commit(BlockingQueue<RowBatch> validQueue, Map<Integer, String> failures, AtomicInteger successCount,
+                        AtomicReference<Throwable> aborted) {
+        Map<Long, RowBatch> pending = new HashMap<>();
+        long nextSeq = 0;
+        int finished = 0;
+        List<ExcelProduct> chunk = new ArrayList<>(chunkSize);
+        while (finished < validatorThreads) {
+            RowBatch batch = take(validQueue, aborted);
+            if (batch.seq == END) {
+                finished++;
+                continue;
+            }
+            pending.put(batch.seq, batch);
+            RowBatch ready;
+            while ((ready = pending.remove(nextSeq)) != null) {
+                nextSeq++;
+                for (ExcelProduct excelProduct : ready.rows) {
+                    chunk.add(excelProduct);
+                    if (chunk.size() >= chunkSize) {
+                        commitChunk(chunk, failures, successCount);
+                        chunk.clear();
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            commitChunk(chunk, failures, successCount);
+        }
+    }
+    
+    /**
+     * 提交一批已验证的产品，验证阶段已逐行校验，提交时不再重复校验
+     */
+    private void commitChunk(List<ExcelProduct> chunk, Map<Integer, String> failures, AtomicInteger successCount) {
+        try {
+            ProductService.BatchResult batchResult = productService.addValidatedProducts(chunk, false);
+            successCount.addAndGet(batchResult.getAppliedCount());
+            for (Map.Entry<Integer, String> failure : batchResult.getFailures().entrySet()) {
+                int rowNumber = chunk.get(failure.getKey()).getRowNumber();
+                failures.put(rowNumber, String.format("第%d行产品导入失败: %s", rowNumber, failure.getValue()));
+            }
+        } catch (Exception e) {
+            for (ExcelProduct excelProduct : chunk) {
+                failures.put(excelProduct.getRowNumber(), String.format("第%d行数据处理异常: %s", 
+                        excelProduct.getRowNumber(), e.getMessage()));
+            }
+        }
+    }
+    
+    /**
+     * 放入队列，队列已满时等待；等待期间导入被中止或线程被中断时抛出异常
+     */
+    private static <T> void put(BlockingQueue<T> queue, T item, AtomicReference<Throwable> aborted) {
+        try {
+            checkAborted(aborted);
+            while (!queue.offer(item, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                checkAborted(aborted);
+            }
+        } catch (InterruptedException e) {
+            throw interrupted(e, aborted);
+        }
+    }
+    
+    /**
+     * 从队列取出，队列为空时等待；等待期间导入被中止或线程被中断时抛出异常
+     */
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> aborted) {
+        try {
+            T item;
+            while ((item = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+                checkAborted(aborted);
+            }
+            return item;
+        } catch (InterruptedException e) {
+            throw interrupted(e, aborted);
+        }
+    }
+    
+    private static void checkAborted(AtomicReference<Throwable> aborted) {
+        Throwable cause = aborted.get();
+        if (cause != null) {
+            throw new IllegalStateException("导入被中止: " + cause.getMessage(), cause);
+        }
+    }
+    
+    private static IllegalStateException interrupted(InterruptedException e, AtomicReference<Throwable> aborted) {
+        Thread.currentThread().interrupt();
+        IllegalStateException failure = new IllegalStateException("导入被中断", e);
+        aborted.compareAndSet(null, failure);
+        return failure;
+    }
+}
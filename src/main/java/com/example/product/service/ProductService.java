@@ -1,16 +1,53 @@
 package com.example.product.service;
 
+import com.example.product.cache.CacheStats;
+import com.example.product.cache.VersionedLruCache;
+import com.example.product.index.CategoryIndex;
+import com.example.product.index.ColumnarIndex;
+import com.example.product.index.IdIndex;
+import com.example.product.index.NameIndex;
+import com.example.product.index.PageCursor;
+import com.example.product.index.PriceIndex;
+import com.example.product.index.ProductIndex;
+import com.example.product.index.QueryPlan;
+import com.example.product.index.QueryPlanner;
+import com.example.product.index.SortKey;
 import com.example.product.model.Product;
+import com.example.product.model.ProductPage;
+import com.example.product.model.ProductStats;
+import com.example.product.persistence.Durability;
+import com.example.product.persistence.GroupCommitFlusher;
+import com.example.product.persistence.JournalRecord;
+import com.example.product.persistence.PersistenceMode;
+import com.example.product.persistence.PersistenceException;
+import com.example.product.persistence.PersistenceOptions;
+import com.example.product.persistence.ProductJournal;
+import com.example.product.persistence.SnapshotManager;
+import com.example.product.store.FrozenProduct;
+import com.example.product.store.ProductStore;
+import com.example.product.store.StoreSnapshot;
 import com.example.product.util.ValidationUtil;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 产品管理服务类
@@ -18,64 +55,602 @@ import java.util.stream.Collectors;
  */
 public class ProductService {
     
-    // 使用内存存储模拟数据库
-    private Map<String, Product> productDatabase = new ConcurrentHashMap<>();
+    // 每页最多返回的产品数
+    public static final int MAX_PAGE_SIZE = 1000;
     
-    // 数据文件路径
-    private static final String DATA_FILE = "products.json";
+    // 默认缓存的查询数
+    public static final int DEFAULT_SEARCH_CACHE_SIZE = 1024;
+    
+    // 旧版本导入时放在描述前面的品牌前缀（"品牌: X 描述"）
+    private static final String LEGACY_BRAND_PREFIX = "品牌: ";
+    
+    // 更早的版本导入时接在描述后面的品牌（"描述 品牌: X"），品牌一直到描述末尾
+    private static final String LEGACY_BRAND_SUFFIX = " 品牌: ";
+    
+    // 使用内存存储模拟数据库，产品以不可修改的版本保存，读取和快照不加锁
+    private final ProductStore store = new ProductStore();
+    
+    // ID排序索引，用于分页
+    private final IdIndex idIndex = new IdIndex();
+    
+    // 分类索引
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    
+    // 价格索引
+    private final PriceIndex priceIndex = new PriceIndex();
+    
+    // 名称 n-gram 索引
+    private final NameIndex nameIndex = new NameIndex();
+    
+    // 列式存储，用于全表扫描和统计，未启用时为null
+    private final ColumnarIndex columnarIndex;
+    
+    // 所有二级索引，在写锁内与存储一起更新；索引不分版本，只用于缩小范围
+    private final List<ProductIndex> indexes;
+    
+    // 根据索引统计选择查询的访问路径
+    private final QueryPlanner queryPlanner;
+    
+    // 查询结果缓存，以数据版本号标记，任何修改都会使其失效
+    private final VersionedLruCache<List<Object>, List<Product>> searchCache;
+    
+    // 持久化配置
+    private final PersistenceOptions options;
+    
+    // 快照管理（临时文件 + 原子重命名）
+    private final SnapshotManager snapshotManager;
+    
+    // 日志模式下的追加日志，快照模式下为null
+    private ProductJournal journal;
+    
+    // 组提交刷盘线程，所有持久化写入都由它完成
+    private GroupCommitFlusher flusher;
+    
+    // 后台压缩线程，把日志合并进快照
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // 是否已有压缩任务在排队或执行
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    
+    // 被预占或扣减过的产品的库存计数器，第一次使用时在写锁内创建
+    private final Map<String, StockCounter> stockCounters = new ConcurrentHashMap<>();
+    
+    // 批量修改的并行计算
+    private final BatchUpdateEngine batchUpdateEngine = new BatchUpdateEngine(store, ForkJoinPool.commonPool());
+    
+    // 保证内存修改与日志记录的顺序一致
+    private final Object writeLock = new Object();
+    
+    // 保证日志切段与批量写入互斥
+    private final Object ioLock = new Object();
+    
+    // 同一时间只进行一次压缩
+    private final Object compactLock = new Object();
+    
+    // 最后一次修改的序号，即数据版本号
+    private volatile long lastSeq;
+    
+    // 第一次刷盘失败的原因。修改在写入文件之前就已公开，失败的修改留在内存中无法撤销，
+    // 因此之后拒绝所有修改，也不再写入快照或日志，文件保持在最后一次成功写入的状态，重启后从文件恢复
+    private volatile IOException persistenceFailure;
     
     // Jackson ObjectMapper 用于JSON序列化/反序列化
     private ObjectMapper objectMapper = new ObjectMapper();
     
+    // 按字段修改产品，未知字段视为错误
+    private final ObjectReader patchReader = objectMapper.readerFor(Product.class)
+            .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    
     /**
-     * 构造函数，初始化时加载数据
+     * 构造函数，使用默认配置
      */
     public ProductService() {
+        this(new PersistenceOptions());
+    }
+    
+    /**
+     * 构造函数，初始化时加载数据
+     * @param options 持久化配置
+     */
+    public ProductService(PersistenceOptions options) {
+        this(options, DEFAULT_SEARCH_CACHE_SIZE);
+    }
+    
+    /**
+     * 构造函数，初始化时加载数据
+     * @param options 持久化配置
+     * @param searchCacheSize 缓存的查询数，0表示不缓存
+     */
+    public ProductService(PersistenceOptions options, int searchCacheSize) {
+        this(options, searchCacheSize, false);
+    }
+    
+    /**
+     * 构造函数，初始化时加载数据
+     * @param options 持久化配置
+     * @param searchCacheSize 缓存的查询数，0表示不缓存
+     * @param columnar 是否维护列式存储，用于扫描大量产品的查询和统计
+     */
+    public ProductService(PersistenceOptions options, int searchCacheSize, boolean columnar) {
+        this.options = options;
+        this.columnarIndex = columnar ? new ColumnarIndex() : null;
+        this.indexes = columnar
+                ? Arrays.asList(idIndex, categoryIndex, priceIndex, nameIndex, columnarIndex)
+                : Arrays.asList(idIndex, categoryIndex, priceIndex, nameIndex);
+        this.queryPlanner = new QueryPlanner(nameIndex, categoryIndex, priceIndex, columnarIndex, () -> store.size());
+        this.searchCache = new VersionedLruCache<>(searchCacheSize);
         // 配置ObjectMapper忽略未知属性
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.snapshotManager = new SnapshotManager(Paths.get(options.getDataFile()),
+                options.getSnapshotFormat(), objectMapper, options.getLoaderThreads());
         loadData();
+        flusher = new GroupCommitFlusher(this::writeBatch, options.getFlushWindowMillis(), options.getMaxBatchSize());
     }
     
     /**
      * 从文件加载数据
+     * 先加载快照，日志模式下再重放快照之后的日志记录。
+     * 快照无法解析时直接失败，避免以空数据启动后覆盖原有快照
      */
     private void loadData() {
         try {
-            File file = new File(DATA_FILE);
-            if (file.exists()) {
-                List<Product> products = objectMapper.readValue(file, new TypeReference<List<Product>>() {});
-                for (Product product : products) {
-                    productDatabase.put(product.getId(), product);
+            long start = System.nanoTime();
+            long loaded = snapshotManager.load(product -> {
+                // 旧快照中没有版本号，取快照序号
+                if (product.getVersion() == null) {
+                    product.setVersion(snapshotManager.getSnapshotSeq());
                 }
-                System.out.println("成功加载 " + products.size() + " 个产品数据");
+                migrateBrand(product);
+                store.load(product);
+            });
+            long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1000000);
+            lastSeq = snapshotManager.getSnapshotSeq();
+            store.publish(lastSeq);
+            if (Files.exists(snapshotManager.getDataFile())) {
+                System.out.println("成功加载 " + loaded + " 个产品数据，耗时 " + elapsedMillis + " ms（"
+                        + (loaded * 1000 / elapsedMillis) + " 个/秒）");
             } else {
                 System.out.println("数据文件不存在，将创建新文件");
             }
         } catch (IOException e) {
-            System.err.println("加载数据时出错: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("加载数据时出错: " + e.getMessage(), e);
+        }
+        
+        // 快照可能由多个线程并行加载，索引在全部数据就绪后一次建立，重放日志时再逐条更新
+        rebuildIndexes();
+        
+        if (options.getMode() == PersistenceMode.JOURNAL) {
+            try {
+                journal = new ProductJournal(Paths.get(options.getJournalFile()), objectMapper);
+                long replayed = journal.replay(snapshotManager.getSnapshotSeq(), this::applyRecord);
+                lastSeq = Math.max(lastSeq, journal.getLastSeq());
+                if (replayed > 0) {
+                    System.out.println("成功重放 " + replayed + " 条日志记录");
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("重放日志时出错: " + e.getMessage(), e);
+            }
         }
     }
     
     /**
-     * 保存数据到文件
+     * 旧版本导入时把品牌写进了描述，加载时拆到品牌字段，描述只保留其余部分
+     * 两种旧格式：
+     * "描述 品牌: X" —— 品牌一直到末尾，可以直接拆分；
+     * "品牌: X 描述" —— 品牌本身可能含空格，只有在拆分位置唯一时才拆分：
+     * 其余部分不含空格，或者只有一个拆分位置得到的品牌是产品名称开头的完整单词。
+     * 无法确定时保持描述不变，不猜测品牌的边界
+     * @param product 刚加载、尚未放入存储的产品
      */
-    private void saveData() {
+    private static void migrateBrand(Product product) {
+        String description = product.getDescription();
+        if (product.getBrand() != null || description == null) {
+            return;
+        }
+        String brand = null;
+        String rest = null;
+        if (description.startsWith(LEGACY_BRAND_PREFIX)) {
+            String remainder = description.substring(LEGACY_BRAND_PREFIX.length());
+            if (remainder.indexOf(' ') < 0) {
+                brand = remainder;
+            } else {
+                int split = uniqueBrandSplit(remainder, product.getName());
+                if (split >= 0) {
+                    brand = remainder.substring(0, split);
+                    rest = split < remainder.length() ? remainder.substring(split + 1) : null;
+                }
+            }
+        } else {
+            int suffix = description.lastIndexOf(LEGACY_BRAND_SUFFIX);
+            if (suffix >= 0) {
+                brand = description.substring(suffix + LEGACY_BRAND_SUFFIX.length());
+                rest = description.substring(0, suffix);
+            }
+        }
+        if (brand != null && !brand.trim().isEmpty()) {
+            product.setBrand(brand.trim());
+            product.setDescription(rest == null || rest.trim().isEmpty() ? null : rest.trim());
+        }
+    }
+    
+    /**
+     * 在"品牌 描述"中找品牌的结束位置：候选位置为每个空格和末尾，
+     * 候选品牌须等于产品名称或是名称开头的完整单词
+     * @return 唯一符合条件的位置，没有或不唯一时返回-1
+     */
+    private static int uniqueBrandSplit(String remainder, String name) {
+        if (name == null) {
+            return -1;
+        }
+        int found = -1;
+        for (int end = remainder.indexOf(' '); ; end = remainder.indexOf(' ', end + 1)) {
+            int split = end < 0 ? remainder.length() : end;
+            String candidate = remainder.substring(0, split);
+            if (!candidate.isEmpty() && (name.equals(candidate) || name.startsWith(candidate + " "))) {
+                if (found >= 0) {
+                    return -1;
+                }
+                found = split;
+            }
+            if (end < 0) {
+                return found;
+            }
+        }
+    }
+    
+    /**
+     * 根据当前数据重建所有索引
+     */
+    private void rebuildIndexes() {
+        long stamp = columnarIndex != null ? columnarIndex.lockForUpdate() : 0;
+        try {
+            for (ProductIndex index : indexes) {
+                index.clear();
+            }
+            try (StoreSnapshot snapshot = store.snapshot()) {
+                for (Product product : snapshot) {
+                    index(product);
+                }
+            }
+        } finally {
+            if (columnarIndex != null) {
+                columnarIndex.unlock(stamp);
+            }
+        }
+    }
+    
+    private void index(Product product) {
+        for (ProductIndex index : indexes) {
+            index.add(product);
+        }
+    }
+    
+    private void unindex(Product product) {
+        for (ProductIndex index : indexes) {
+            index.remove(product);
+        }
+    }
+    
+    /**
+     * 安装一个产品的新版本并更新索引，调用方需持有 writeLock
+     * @param seq 修改序号
+     * @param product 产品对象
+     */
+    private void putProduct(long seq, Product product) {
+        Product previous = store.put(seq, product);
+        if (previous != null) {
+            unindex(previous);
+            // 库存的任何变化都同步到可用库存
+            StockCounter counter = stockCounters.get(product.getId());
+            if (counter != null) {
+                counter.adjust(stockOf(product) - stockOf(previous));
+            }
+        }
+        index(product);
+    }
+    
+    private static int stockOf(Product product) {
+        return product.getStock() != null ? product.getStock() : 0;
+    }
+    
+    /**
+     * 删除一个产品并更新索引，调用方需持有 writeLock
+     * @param seq 修改序号
+     * @param id 产品ID
+     */
+    private void removeProduct(long seq, String id) {
+        Product previous = store.remove(seq, id);
+        if (previous != null) {
+            unindex(previous);
+            stockCounters.remove(id);
+        }
+    }
+    
+    /**
+     * 将一条已分配序号的日志记录应用到存储，记录中的所有版本在 publish 之后才对读取方可见；
+     * 列式存储在整条记录应用完之后才对统计可见
+     * @param record 日志记录
+     */
+    private void apply(JournalRecord record) {
+        long stamp = columnarIndex != null ? columnarIndex.lockForUpdate() : 0;
+        try {
+            if (record.getProducts() != null) {
+                for (Product product : record.getProducts()) {
+                    putProduct(record.getSeq(), product);
+                }
+            }
+            if (record.getIds() != null) {
+                for (String id : record.getIds()) {
+                    removeProduct(record.getSeq(), id);
+                }
+            }
+        } finally {
+            if (columnarIndex != null) {
+                columnarIndex.unlock(stamp);
+            }
+        }
+    }
+    
+    /**
+     * 重放一条日志记录
+     * @param record 日志记录
+     */
+    private void applyRecord(JournalRecord record) {
+        if (record.getProducts() != null) {
+            for (Product product : record.getProducts()) {
+                migrateBrand(product);
+            }
+        }
+        apply(record);
+        store.publish(record.getSeq());
+    }
+    
+    /**
+     * 刷盘线程写入一个批次
+     * 日志模式下一次追加整批记录，快照模式下整批只重写一次快照
+     * @param records 批次内的记录
+     * @param sync 是否 fsync
+     * @throws IOException IO异常
+     */
+    private void writeBatch(List<JournalRecord> records, boolean sync) throws IOException {
+        if (persistenceFailure != null) {
+            throw new IOException("之前的修改未能保存，不再写入文件", persistenceFailure);
+        }
         try {
-            List<Product> products = new ArrayList<>(productDatabase.values());
-            objectMapper.writeValue(new File(DATA_FILE), products);
+            writeRecords(records, sync);
         } catch (IOException e) {
-            System.err.println("保存数据时出错: " + e.getMessage());
-            e.printStackTrace();
+            persistenceFailure = e;
+            System.err.println("保存数据失败，服务停止接受修改，需要重启后从文件恢复: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    private void writeRecords(List<JournalRecord> records, boolean sync) throws IOException {
+        if (journal == null) {
+            // 快照总是 fsync 后再重命名
+            synchronized (compactLock) {
+                writeSnapshot();
+            }
+            return;
+        }
+        synchronized (ioLock) {
+            journal.appendAll(records);
+            if (sync) {
+                journal.sync();
+            }
+        }
+        if (journal.getRecordCount() >= options.getCheckpointThreshold() && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+    
+    /**
+     * 把存储的当前快照写入快照文件，文件记录的序号就是快照的序号
+     * @return 快照序号
+     * @throws IOException IO异常
+     */
+    private long writeSnapshot() throws IOException {
+        try (StoreSnapshot snapshot = store.snapshot()) {
+            snapshotManager.write(snapshot, snapshot.getSeq());
+            return snapshot.getSeq();
         }
     }
     
+    /**
+     * 把日志合并进新快照
+     * 只在切换日志段时短暂持有 ioLock，写快照期间读写请求和刷盘都不受影响。
+     * 写入的是切段之后取得的存储快照，旧段中的记录都已包含在内；
+     * 新段中序号不超过快照序号的记录在重放时被跳过
+     */
+    private void compact() {
+        synchronized (compactLock) {
+            if (persistenceFailure != null) {
+                // 内存中有未保存的修改，写入快照会把它们当作已保存
+                return;
+            }
+            long nextSegment;
+            synchronized (ioLock) {
+                if (journal == null) {
+                    return;
+                }
+                try {
+                    nextSegment = journal.rotate();
+                } catch (IOException e) {
+                    System.err.println("切换日志段时出错: " + e.getMessage());
+                    e.printStackTrace();
+                    return;
+                }
+            }
+            try {
+                long start = System.currentTimeMillis();
+                long seq = writeSnapshot();
+                journal.deleteSegmentsBefore(nextSegment);
+                System.out.println("快照压缩完成，序号 " + seq + "，耗时 " + (System.currentTimeMillis() - start) + " ms");
+            } catch (IOException e) {
+                // 旧日志段保留，下次启动仍可重放
+                System.err.println("写入快照时出错: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * 提交一次修改：分配序号、安装新版本并一次性公开，再交给刷盘线程
+     * 调用方需持有 writeLock，保证序号与提交顺序一致。
+     * 修改在写入文件之前公开，刷盘失败后服务停止接受修改（见 persistenceFailure），此时不做任何修改直接抛出异常。
+     * 记录中的产品被替换为版本号等于本次序号的不可修改副本，刷盘线程序列化的就是读取方看到的版本
+     * @param record 本次修改对应的日志记录
+     * @param durability 持久化级别
+     * @return 达到持久化级别后完成的 Future
+     * @throws PersistenceException 之前的刷盘失败过
+     */
+    private CompletableFuture<Void> commit(JournalRecord record, Durability durability) {
+        if (flusher == null) {
+            throw new IllegalStateException("产品服务已关闭");
+        }
+        if (persistenceFailure != null) {
+            throw new PersistenceException("之前的修改未能保存，服务已停止接受修改，需要重启后从文件恢复",
+                    persistenceFailure);
+        }
+        record.setSeq(lastSeq + 1);
+        if (record.getProducts() != null) {
+            List<Product> frozen = new ArrayList<>(record.getProducts().size());
+            for (Product product : record.getProducts()) {
+                frozen.add(FrozenProduct.of(product, record.getSeq()));
+            }
+            record.setProducts(frozen);
+        }
+        apply(record);
+        store.publish(record.getSeq());
+        lastSeq = record.getSeq();
+        return flusher.submit(record, durability);
+    }
+    
+    /**
+     * 在写锁之外等待修改达到要求的持久化级别
+     * 刷盘失败或等待被中断时抛出异常，不能把未保存的修改当作成功返回
+     * @param future commit 返回的 Future
+     * @param durability 持久化级别
+     * @throws PersistenceException 修改未能写入文件
+     */
+    private void await(CompletableFuture<Void> future, Durability durability) {
+        if (durability == Durability.ASYNC) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("等待保存数据时被中断", e);
+        } catch (ExecutionException e) {
+            System.err.println("保存数据时出错: " + e.getCause().getMessage());
+            throw new PersistenceException("保存数据时出错: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * 立即把日志合并进快照，完成后返回
+     */
+    public void checkpoint() {
+        if (persistenceFailure != null) {
+            throw new PersistenceException("之前的修改未能保存，不能写入检查点", persistenceFailure);
+        }
+        if (journal == null) {
+            try {
+                synchronized (compactLock) {
+                    writeSnapshot();
+                }
+            } catch (IOException e) {
+                System.err.println("保存数据时出错: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return;
+        }
+        compact();
+    }
+    
+    /**
+     * 当前数据版本号，每次修改递增
+     * @return 版本号
+     */
+    public long getStoreVersion() {
+        return lastSeq;
+    }
+    
+    /**
+     * 产品的版本号，即最后一次修改它的序号
+     * 同一产品的不同内容版本号一定不同，可用于生成 ETag
+     * @param id 产品ID
+     * @return 版本号，产品不存在时返回-1
+     */
+    public long getProductVersion(String id) {
+        Product product = store.get(id);
+        return product != null ? product.getVersion() : -1;
+    }
+    
+    /**
+     * 关闭服务，写完待刷盘的修改并释放日志文件
+     */
+    public void close() {
+        synchronized (writeLock) {
+            if (flusher == null) {
+                return;
+            }
+            flusher.close();
+            flusher = null;
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (ioLock) {
+                if (journal != null) {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        System.err.println("关闭日志文件时出错: " + e.getMessage());
+                    }
+                    journal = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 已写入的批次数，用于观察组提交的合并效果
+     * @return 批次数
+     */
+    public long getFlushedBatchCount() {
+        return flusher != null ? flusher.getBatchCount() : 0;
+    }
+    
     /**
      * 添加产品
      * @param product 产品对象
      * @return 添加成功返回true，否则返回false
      */
     public boolean addProduct(Product product) {
+        return addProduct(product, options.getDefaultDurability());
+    }
+    
+    /**
+     * 添加产品
+     * @param product 产品对象
+     * @param durability 持久化级别
+     * @return 添加成功返回true，否则返回false
+     */
+    public boolean addProduct(Product product, Durability durability) {
         // 验证产品数据
         List<String> errors = ValidationUtil.validateProduct(product);
         if (!errors.isEmpty()) {
@@ -83,24 +658,108 @@ public class ProductService {
             return false;
         }
         
-        // 检查ID是否已存在
-        if (productDatabase.containsKey(product.getId())) {
-            System.err.println("产品ID已存在: " + product.getId());
-            return false;
+        CompletableFuture<Void> saved;
+        synchronized (writeLock) {
+            // 检查ID是否已存在
+            if (store.latest(product.getId()) != null) {
+                System.err.println("产品ID已存在: " + product.getId());
+                return false;
+            }
+            
+            saved = commit(JournalRecord.add(product), durability); // 保存数据到文件
         }
-        
-        productDatabase.put(product.getId(), product);
-        saveData(); // 保存数据到文件
+        await(saved, durability);
         return true;
     }
     
+    /**
+     * 批量添加产品
+     * 整批数据先校验，再在一次写锁内写入内存，并且只持久化一次
+     * @param products 产品列表
+     * @param upsert 为true时已存在的产品被覆盖，否则视为失败
+     * @return 批量写入结果
+     */
+    public BatchResult addProducts(List<? extends Product> products, boolean upsert) {
+        return addProducts(products, upsert, options.getDefaultDurability());
+    }
+    
+    /**
+     * 批量添加产品
+     * @param products 产品列表
+     * @param upsert 为true时已存在的产品被覆盖，否则视为失败
+     * @param durability 持久化级别
+     * @return 批量写入结果
+     */
+    public BatchResult addProducts(List<? extends Product> products, boolean upsert, Durability durability) {
+        return addProducts(products, upsert, durability, true);
+    }
+    
+    /**
+     * 批量添加已经逐行校验过的产品，不再重复校验
+     * 导入流水线的验证阶段已并行校验每一行，提交阶段使用此方法
+     * @param products 校验通过的产品列表
+     * @param upsert 为true时已存在的产品被覆盖，否则视为失败
+     * @return 批量写入结果
+     */
+    BatchResult addValidatedProducts(List<? extends Product> products, boolean upsert) {
+        return addProducts(products, upsert, options.getDefaultDurability(), false);
+    }
+    
+    private BatchResult addProducts(List<? extends Product> products, boolean upsert, Durability durability,
+                                    boolean validate) {
+        BatchResult result = new BatchResult();
+        // 校验不需要持有写锁
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (validate) {
+                List<String> errors = ValidationUtil.validateProduct(product);
+                if (!errors.isEmpty()) {
+                    result.addFailure(i, "数据验证失败: " + String.join(", ", errors));
+                    continue;
+                }
+            }
+            Integer previous = accepted.put(product.getId(), i);
+            if (previous != null) {
+                if (upsert) {
+                    // 批次内同一ID以最后一条为准
+                    result.addSkipped(previous);
+                } else {
+                    accepted.put(product.getId(), previous);
+                    result.addFailure(i, "批次内产品ID重复: " + product.getId());
+                }
+            }
+        }
+        
+        CompletableFuture<Void> saved = null;
+        synchronized (writeLock) {
+            List<Product> applied = new ArrayList<>(accepted.size());
+            for (Integer index : accepted.values()) {
+                Product product = products.get(index);
+                if (!upsert && store.latest(product.getId()) != null) {
+                    result.addFailure(index, "产品ID已存在: " + product.getId());
+                    continue;
+                }
+                applied.add(product);
+            }
+            if (!applied.isEmpty()) {
+                saved = commit(JournalRecord.batch(applied), durability); // 整批一次公开，只保存一次
+            }
+            result.setAppliedCount(applied.size());
+        }
+        if (saved != null) {
+            await(saved, durability);
+        }
+        return result;
+    }
+    
     /**
      * 根据ID获取产品
      * @param id 产品ID
      * @return 产品对象，如果不存在返回null
      */
     public Product getProductById(String id) {
-        return productDatabase.get(id);
+        return store.get(id);
     }
     
     /**
@@ -109,22 +768,118 @@ public class ProductService {
      * @return 更新成功返回true，否则返回false
      */
     public boolean updateProduct(Product product) {
-        // 验证产品数据
+        return updateProduct(product, options.getDefaultDurability());
+    }
+    
+    /**
+     * 更新产品
+     * @param product 产品对象
+     * @param durability 持久化级别
+     * @return 更新成功返回true，否则返回false
+     */
+    public boolean updateProduct(Product product, Durability durability) {
+        UpdateResult result = updateProduct(product, null, durability);
+        if (result.getStatus() == UpdateResult.Status.INVALID) {
+            System.err.println("产品数据验证失败: " + result.getErrors());
+        } else if (result.getStatus() == UpdateResult.Status.NOT_FOUND) {
+            System.err.println("产品不存在: " + product.getId());
+        }
+        return result.isUpdated();
+    }
+    
+    /**
+     * 条件更新产品（比较并交换）
+     * 客户端读取产品时得到版本号，提交时带上；版本号不一致说明期间已被他人修改，更新失败且不产生任何修改。
+     * 读取和编辑期间不持有任何锁，只在提交时短暂持有写锁完成比较和安装
+     * @param product 产品对象，版本号字段被忽略
+     * @param expectedVersion 期望的当前版本号，null表示不检查
+     * @param durability 持久化级别，null表示使用配置值
+     * @return 更新结果，成功时包含新版本的产品
+     */
+    public UpdateResult updateProduct(Product product, Long expectedVersion, Durability durability) {
+        if (durability == null) {
+            durability = options.getDefaultDurability();
+        }
         List<String> errors = ValidationUtil.validateProduct(product);
         if (!errors.isEmpty()) {
-            System.err.println("产品数据验证失败: " + errors);
-            return false;
+            return UpdateResult.invalid(errors);
         }
         
-        // 检查产品是否存在
-        if (!productDatabase.containsKey(product.getId())) {
-            System.err.println("产品不存在: " + product.getId());
-            return false;
+        CompletableFuture<Void> saved;
+        Product updated;
+        synchronized (writeLock) {
+            Product current = store.latest(product.getId());
+            UpdateResult rejected = checkVersion(product.getId(), current, expectedVersion);
+            if (rejected != null) {
+                return rejected;
+            }
+            
+            saved = commit(JournalRecord.update(product), durability); // 保存数据到文件
+            updated = store.latest(product.getId());
+        }
+        await(saved, durability);
+        return UpdateResult.updated(updated);
+    }
+    
+    /**
+     * 按字段修改产品，只修改 fields 中出现的字段
+     * 字段在当前版本的副本上修改，校验通过后与条件更新一样按版本号比较并安装
+     * @param id 产品ID
+     * @param fields 要修改的字段及新值，不能包含未知字段，也不能修改ID；version 字段被忽略
+     * @param expectedVersion 期望的当前版本号，null表示不检查
+     * @param durability 持久化级别，null表示使用配置值
+     * @return 更新结果，成功时包含新版本的产品
+     */
+    public UpdateResult patchProduct(String id, Map<String, Object> fields, Long expectedVersion, Durability durability) {
+        if (durability == null) {
+            durability = options.getDefaultDurability();
+        }
+        Map<String, Object> changes = new LinkedHashMap<>(fields);
+        changes.remove("version");
+        Object newId = changes.remove("id");
+        if (newId != null && !id.equals(String.valueOf(newId))) {
+            return UpdateResult.invalid(Collections.singletonList("不能修改产品ID"));
         }
         
-        productDatabase.put(product.getId(), product);
-        saveData(); // 保存数据到文件
-        return true;
+        CompletableFuture<Void> saved;
+        Product updated;
+        synchronized (writeLock) {
+            Product current = store.latest(id);
+            UpdateResult rejected = checkVersion(id, current, expectedVersion);
+            if (rejected != null) {
+                return rejected;
+            }
+            
+            Product patched = new Product(current);
+            try {
+                patchReader.withValueToUpdate(patched).readValue((JsonNode) objectMapper.valueToTree(changes));
+            } catch (IOException | IllegalArgumentException e) {
+                return UpdateResult.invalid(Collections.singletonList("字段无效: " + e.getMessage()));
+            }
+            List<String> errors = ValidationUtil.validateProduct(patched);
+            if (!errors.isEmpty()) {
+                return UpdateResult.invalid(errors);
+            }
+            
+            saved = commit(JournalRecord.update(patched), durability); // 保存数据到文件
+            updated = store.latest(id);
+        }
+        await(saved, durability);
+        return UpdateResult.updated(updated);
+    }
+    
+    /**
+     * 检查产品存在且版本号符合期望，调用方需持有 writeLock
+     * @return 不满足时返回失败结果，满足时返回null
+     */
+    private UpdateResult checkVersion(String id, Product current, Long expectedVersion) {
+        if (current == null) {
+            return UpdateResult.notFound();
+        }
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            return UpdateResult.conflict(current);
+        }
+        return null;
     }
     
     /**
@@ -133,13 +888,26 @@ public class ProductService {
      * @return 删除成功返回true，否则返回false
      */
     public boolean deleteProduct(String id) {
-        if (!productDatabase.containsKey(id)) {
-            System.err.println("产品不存在: " + id);
-            return false;
+        return deleteProduct(id, options.getDefaultDurability());
+    }
+    
+    /**
+     * 删除产品
+     * @param id 产品ID
+     * @param durability 持久化级别
+     * @return 删除成功返回true，否则返回false
+     */
+    public boolean deleteProduct(String id, Durability durability) {
+        CompletableFuture<Void> saved;
+        synchronized (writeLock) {
+            if (store.latest(id) == null) {
+                System.err.println("产品不存在: " + id);
+                return false;
+            }
+            
+            saved = commit(JournalRecord.delete(id), durability); // 保存数据到文件
         }
-        
-        productDatabase.remove(id);
-        saveData(); // 保存数据到文件
+        await(saved, durability);
         return true;
     }
     
@@ -148,7 +916,19 @@ public class ProductService {
      * @return 产品列表
      */
     public List<Product> getAllProducts() {
-        return new ArrayList<>(productDatabase.values());
+        try (StoreSnapshot snapshot = store.snapshot()) {
+            return new ArrayList<>(snapshot);
+        }
+    }
+    
+    /**
+     * 获取所有产品的时间点快照
+     * 不复制数据，遍历期间的修改不可见，也不阻塞写入，适合一次性遍历的大批量操作（如导出）。
+     * 使用完毕后必须关闭
+     * @return 产品快照
+     */
+    public StoreSnapshot snapshot() {
+        return store.snapshot();
     }
     
     /**
@@ -160,74 +940,661 @@ public class ProductService {
      * @return 符合条件的产品列表
      */
     public List<Product> searchProducts(String name, String category, Double minPrice, Double maxPrice) {
-        return productDatabase.values().stream()
-                .filter(product -> name == null || product.getName().toLowerCase().contains(name.toLowerCase()))
-                .filter(product -> category == null || product.getCategory().equals(category))
-                .filter(product -> minPrice == null || product.getPrice() >= minPrice)
-                .filter(product -> maxPrice == null || product.getPrice() <= maxPrice)
-                .collect(Collectors.toList());
+        return searchProducts(planSearch(name, category, minPrice, maxPrice));
     }
     
     /**
-     * 批量更新产品价格
-     * @param productIds 产品ID列表
-     * @param adjustment 调整值（正数表示涨价，负数表示降价）
-     * @return 成功更新的产品数量
+     * 为查询生成计划，不执行查询
+     * @param name 产品名称（模糊匹配）
+     * @param category 产品分类
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @return 查询计划
      */
-    public int batchUpdatePrice(List<String> productIds, double adjustment) {
-        int count = 0;
-        for (String id : productIds) {
-            Product product = productDatabase.get(id);
-            if (product != null && product.getPrice() != null) {
-                product.setPrice(product.getPrice() + adjustment);
-                count++;
+    public QueryPlan planSearch(String name, String category, Double minPrice, Double maxPrice) {
+        return queryPlanner.plan(name, category, minPrice, maxPrice);
+    }
+    
+    /**
+     * 按计划执行查询，执行后计划中记录实际检查和返回的行数
+     * 索引只用来缩小范围，所有条件仍逐个校验。
+     * 相同条件的查询在数据版本不变时直接返回缓存的结果
+     * @param plan 查询计划
+     * @return 符合条件的产品列表（只读）
+     */
+    public List<Product> searchProducts(QueryPlan plan) {
+        List<Object> key = Arrays.asList(plan.getNormalizedName(), plan.getCategory(), plan.getMinPrice(), plan.getMaxPrice());
+        // 在快照上计算，结果对应快照的序号，之后发生的修改会使它失效
+        try (StoreSnapshot snapshot = store.snapshot()) {
+            long version = snapshot.getSeq();
+            List<Product> cached = searchCache.get(key, version);
+            if (cached != null) {
+                plan.setCached(true);
+                plan.setExaminedRows(0);
+                plan.setResultRows(cached.size());
+                return cached;
             }
+            
+            Collection<String> ids = queryPlanner.candidates(plan);
+            Collection<Product> candidates = ids != null ? snapshot.getAll(ids) : snapshot;
+            List<Product> results = Collections.unmodifiableList(candidates.stream()
+                    .filter(product -> matches(plan, product))
+                    .collect(Collectors.toList()));
+            plan.setExaminedRows(ids != null ? candidates.size() : snapshot.size());
+            plan.setResultRows(results.size());
+            searchCache.put(key, version, results);
+            return results;
         }
-        if (count > 0) {
-            saveData(); // 保存数据到文件
+    }
+    
+    /**
+     * 统计满足条件的产品：数量、库存合计、价格区间与均价、库存总价值
+     * 启用列式存储时只扫描价格、库存和分类列；否则在快照上按查询计划取出产品统计
+     * @param category 产品分类，null表示不限
+     * @param minPrice 最低价格，null表示不限
+     * @param maxPrice 最高价格，null表示不限
+     * @return 统计结果
+     */
+    public ProductStats getProductStats(String category, Double minPrice, Double maxPrice) {
+        if (columnarIndex != null) {
+            return columnarIndex.aggregate(category, minPrice, maxPrice);
+        }
+        ProductStats stats = new ProductStats();
+        try (Stream<Product> products = streamProducts(planSearch(null, category, minPrice, maxPrice))) {
+            products.forEach(product -> stats.add(product.getPrice() != null ? product.getPrice() : Double.NaN,
+                    stockOf(product)));
         }
-        return count;
+        return stats;
     }
     
     /**
-     * 按百分比批量更新产品价格
-     * @param productIds 产品ID列表
-     * @param percentage 调整百分比（正数表示涨价，负数表示降价）
-     * @return 成功更新的产品数量
+     * 查询缓存的统计信息
+     * @return 命中、未命中、淘汰和失效次数
+     */
+    public CacheStats getSearchCacheStats() {
+        return searchCache.getStats();
+    }
+    
+    /**
+     * 按计划查询，返回惰性求值的流
+     * 遍历时才逐个取出并校验产品，不生成结果列表，适合把大量结果直接写入响应。
+     * 流在创建时的快照上求值，使用完毕后必须关闭
+     * @param plan 查询计划
+     * @return 符合条件的产品流
+     */
+    public Stream<Product> streamProducts(QueryPlan plan) {
+        StoreSnapshot snapshot = store.snapshot();
+        Collection<String> ids = queryPlanner.candidates(plan);
+        Stream<Product> candidates = ids != null
+                ? ids.stream().map(snapshot::get).filter(Objects::nonNull)
+                : snapshot.stream();
+        return candidates.filter(product -> matches(plan, product)).onClose(snapshot::close);
+    }
+    
+    /**
+     * 分页获取所有产品
+     * @param limit 每页数量，超过 MAX_PAGE_SIZE 时按 MAX_PAGE_SIZE 处理
+     * @param cursor 上一页返回的游标，null表示第一页
+     * @param sortKey 排序字段
+     * @param descending 是否降序
+     * @return 一页产品
+     */
+    public ProductPage listProducts(int limit, String cursor, SortKey sortKey, boolean descending) {
+        return searchProducts(planSearch(null, null, null, null), limit, cursor, sortKey, descending);
+    }
+    
+    /**
+     * 按计划分页查询（键集分页）
+     * 全表扫描（包括列扫描）或按价格排序且价格索引驱动时，沿排序索引从游标处继续遍历，
+     * 取满一页即停止，代价与页大小成正比；其他计划的候选集已经很小，过滤后排序取一页
+     * @param plan 查询计划
+     * @param limit 每页数量，超过 MAX_PAGE_SIZE 时按 MAX_PAGE_SIZE 处理
+     * @param cursor 上一页返回的游标，null表示第一页
+     * @param sortKey 排序字段
+     * @param descending 是否降序
+     * @return 一页产品
+     * @throws IllegalArgumentException 每页数量小于1或游标无效
+     */
+    public ProductPage searchProducts(QueryPlan plan, int limit, String cursor, SortKey sortKey, boolean descending) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("每页数量必须大于0");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        PageCursor after = cursor != null ? PageCursor.decode(sortKey, cursor) : null;
+        // 多取一个，用来判断是否还有下一页
+        List<Product> page = new ArrayList<>(pageSize + 1);
+        long examined = 0;
+        // 整页在同一个快照上取出，翻页期间的修改只影响之后的页
+        try (StoreSnapshot snapshot = store.snapshot()) {
+            boolean priceDriven = plan.getStrategy() == QueryPlan.Strategy.INDEX
+                    && QueryPlan.PRICE.equals(plan.getIndexes().get(0));
+            boolean scan = plan.getStrategy() == QueryPlan.Strategy.SCAN
+                    || plan.getStrategy() == QueryPlan.Strategy.COLUMN_SCAN;
+            if (scan || (sortKey == SortKey.PRICE && priceDriven)) {
+                Iterable<String> ids = sortKey == SortKey.ID
+                        ? idIndex.after(after != null ? after.getId() : null, descending)
+                        : priceIndex.after(plan.getMinPrice(), plan.getMaxPrice(), after, descending);
+                for (String id : ids) {
+                    Product product = snapshot.get(id);
+                    if (product == null) {
+                        continue;
+                    }
+                    examined++;
+                    // 索引不分版本，快照中的价格可能与索引不同，仍需确认产品排在游标之后
+                    if (matches(plan, product) && (after == null || after.isBefore(product, descending))) {
+                        page.add(product);
+                        if (page.size() > pageSize) {
+                            break;
+                        }
+                    }
+                }
+            } else {
+                Collection<String> ids = queryPlanner.candidates(plan);
+                Comparator<Product> order = descending ? sortKey.comparator().reversed() : sortKey.comparator();
+                List<Product> candidates = snapshot.getAll(ids);
+                examined = candidates.size();
+                candidates.stream()
+                        .filter(product -> matches(plan, product) && (after == null || after.isBefore(product, descending)))
+                        .sorted(order)
+                        .limit(pageSize + 1)
+                        .forEach(page::add);
+            }
+        }
+        
+        String nextCursor = null;
+        if (page.size() > pageSize) {
+            page.remove(pageSize);
+            nextCursor = PageCursor.of(sortKey, page.get(pageSize - 1)).encode();
+        }
+        plan.setExaminedRows(examined);
+        plan.setResultRows(page.size());
+        return new ProductPage(page, nextCursor);
+    }
+    
+    /**
+     * 预占库存
+     * 只在产品的库存计数器上做一次 CAS，不加锁、不写日志，可用库存不足时失败，不会出现负数。
+     * 预占的库存之后通过 commitReservedStock 扣减或 releaseStock 释放；预占不持久化，重启后失效
+     * @param id 产品ID
+     * @param quantity 数量，必须大于0
+     * @return 成功返回true，产品不存在或可用库存不足返回false
+     */
+    public boolean reserveStock(String id, int quantity) {
+        checkQuantity(quantity);
+        StockCounter counter = stockCounter(id);
+        return counter != null && counter.reserve(quantity);
+    }
+    
+    /**
+     * 释放预占的库存
+     * @param id 产品ID
+     * @param quantity 数量，必须大于0
+     * @return 成功返回true，产品不存在或释放数量超过已预占数量返回false
+     */
+    public boolean releaseStock(String id, int quantity) {
+        checkQuantity(quantity);
+        StockCounter counter = stockCounters.get(id);
+        return counter != null && counter.release(quantity);
+    }
+    
+    /**
+     * 把预占的库存转为扣减，产品库存减少并持久化
+     * @param id 产品ID
+     * @param quantity 数量，必须大于0
+     * @return 成功返回true，产品不存在、扣减数量超过已预占数量或库存不足返回false
+     */
+    public boolean commitReservedStock(String id, int quantity) {
+        checkQuantity(quantity);
+        StockCounter counter = stockCounters.get(id);
+        if (counter == null || !counter.unreserve(quantity)) {
+            return false;
+        }
+        // 提交时可用库存随库存再减少一次，提交完成后再归还预占的部分，中间状态只会偏少
+        boolean decremented;
+        try {
+            decremented = decrementStoredStock(id, quantity);
+        } catch (PersistenceException e) {
+            counter.rereserve(quantity);
+            throw e;
+        }
+        if (!decremented) {
+            counter.rereserve(quantity);
+            return false;
+        }
+        counter.adjust(quantity);
+        return true;
+    }
+    
+    /**
+     * 直接扣减库存（预占后立即扣减），库存不足时失败，不会出现负数
+     * @param id 产品ID
+     * @param quantity 数量，必须大于0
+     * @return 成功返回true
+     */
+    public boolean decrementStock(String id, int quantity) {
+        if (!reserveStock(id, quantity)) {
+            return false;
+        }
+        boolean committed = false;
+        try {
+            committed = commitReservedStock(id, quantity);
+        } finally {
+            if (!committed) {
+                releaseStock(id, quantity);
+            }
+        }
+        return committed;
+    }
+    
+    /**
+     * 批量预占多个产品的库存，全部成功或全部失败
+     * 按产品ID顺序逐个预占，任何一个失败时释放已预占的部分
+     * @param quantities 产品ID到数量的映射
+     * @return 预占结果，失败时列出不存在或库存不足的产品ID
+     */
+    public ReservationResult reserveStock(Map<String, Integer> quantities) {
+        for (Integer quantity : quantities.values()) {
+            checkQuantity(quantity != null ? quantity : 0);
+        }
+        ReservationResult result = new ReservationResult();
+        List<String> reserved = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            if (reserveStock(entry.getKey(), entry.getValue())) {
+                reserved.add(entry.getKey());
+            } else {
+                result.getFailedIds().add(entry.getKey());
+                break;
+            }
+        }
+        if (!result.getFailedIds().isEmpty()) {
+            for (String id : reserved) {
+                releaseStock(id, quantities.get(id));
+            }
+            return result;
+        }
+        result.setReserved(true);
+        for (String id : reserved) {
+            result.getAvailable().put(id, getAvailableStock(id));
+        }
+        return result;
+    }
+    
+    /**
+     * 批量释放多个产品预占的库存
+     * @param quantities 产品ID到数量的映射
+     * @return 释放失败（不存在或超过已预占数量）的产品ID
+     * @throws IllegalArgumentException 任一数量不大于0，此时不释放任何产品
+     */
+    public List<String> releaseStock(Map<String, Integer> quantities) {
+        for (Integer quantity : quantities.values()) {
+            checkQuantity(quantity != null ? quantity : 0);
+        }
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            if (!releaseStock(entry.getKey(), entry.getValue() != null ? entry.getValue() : 0)) {
+                failed.add(entry.getKey());
+            }
+        }
+        return failed;
+    }
+    
+    /**
+     * 可用库存，即库存减去预占数量
+     * @param id 产品ID
+     * @return 可用库存，产品不存在时返回-1
+     */
+    public int getAvailableStock(String id) {
+        StockCounter counter = stockCounters.get(id);
+        if (counter != null) {
+            return counter.getAvailable();
+        }
+        Product product = store.get(id);
+        return product != null ? stockOf(product) : -1;
+    }
+    
+    /**
+     * 已预占、尚未扣减或释放的数量
+     * @param id 产品ID
+     * @return 预占数量
+     */
+    public int getReservedStock(String id) {
+        StockCounter counter = stockCounters.get(id);
+        return counter != null ? counter.getReserved() : 0;
+    }
+    
+    private static void checkQuantity(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("数量必须大于0");
+        }
+    }
+    
+    /**
+     * 取得产品的库存计数器，第一次使用时按当前库存创建
+     * 创建在写锁内进行，保证与库存修改的提交不交错
+     * @param id 产品ID
+     * @return 计数器，产品不存在时返回null
      */
-    public int batchUpdatePriceByPercentage(List<String> productIds, double percentage) {
-        int count = 0;
-        for (String id : productIds) {
-            Product product = productDatabase.get(id);
-            if (product != null && product.getPrice() != null) {
-                product.setPrice(product.getPrice() * (1 + percentage / 100));
-                count++;
+    private StockCounter stockCounter(String id) {
+        StockCounter counter = stockCounters.get(id);
+        if (counter != null) {
+            return counter;
+        }
+        synchronized (writeLock) {
+            counter = stockCounters.get(id);
+            if (counter == null) {
+                Product product = store.latest(id);
+                if (product == null) {
+                    return null;
+                }
+                counter = new StockCounter(stockOf(product));
+                stockCounters.put(id, counter);
             }
+            return counter;
         }
-        if (count > 0) {
-            saveData(); // 保存数据到文件
+    }
+    
+    /**
+     * 提交一次库存扣减
+     * @param id 产品ID
+     * @param quantity 数量
+     * @return 产品不存在或库存不足时返回false
+     */
+    private boolean decrementStoredStock(String id, int quantity) {
+        Durability durability = options.getDefaultDurability();
+        CompletableFuture<Void> saved;
+        synchronized (writeLock) {
+            Product current = store.latest(id);
+            if (current == null || stockOf(current) < quantity) {
+                return false;
+            }
+            Product updated = new Product(current);
+            updated.setStock(stockOf(current) - quantity);
+            saved = commit(JournalRecord.update(updated), durability); // 保存数据到文件
         }
-        return count;
+        await(saved, durability);
+        return true;
+    }
+    
+    /**
+     * 产品是否满足查询条件
+     * @param plan 查询计划
+     * @param product 产品
+     * @return 满足返回true
+     */
+    private boolean matches(QueryPlan plan, Product product) {
+        String normalizedName = plan.getNormalizedName();
+        return (normalizedName == null || NameIndex.normalize(product.getName()).contains(normalizedName))
+                && (plan.getCategory() == null || product.getCategory().equals(plan.getCategory()))
+                && (plan.getMinPrice() == null || product.getPrice() >= plan.getMinPrice())
+                && (plan.getMaxPrice() == null || product.getPrice() <= plan.getMaxPrice());
+    }
+    
+    /**
+     * 批量更新产品价格
+     * @param productIds 产品ID列表
+     * @param adjustment 调整值（正数表示涨价，负数表示降价）
+     * @return 批量修改结果，列出已修改的产品ID
+     */
+    public BatchUpdateResult batchUpdatePrice(List<String> productIds, double adjustment) {
+        return batchUpdate(productIds, product -> product.getPrice() != null,
+                product -> product.setPrice(product.getPrice() + adjustment));
+    }
+    
+    /**
+     * 按百分比批量更新产品价格
+     * @param productIds 产品ID列表
+     * @param percentage 调整百分比（正数表示涨价，负数表示降价）
+     * @return 批量修改结果，列出已修改的产品ID
+     */
+    public BatchUpdateResult batchUpdatePriceByPercentage(List<String> productIds, double percentage) {
+        return batchUpdate(productIds, product -> product.getPrice() != null,
+                product -> product.setPrice(product.getPrice() * (1 + percentage / 100)));
     }
     
     /**
      * 批量更新产品库存
      * @param productIds 产品ID列表
      * @param newStock 新库存数量
-     * @return 成功更新的产品数量
+     * @return 批量修改结果，列出已修改的产品ID
+     */
+    public BatchUpdateResult batchUpdateStock(List<String> productIds, int newStock) {
+        return batchUpdate(productIds, product -> true,
+                product -> product.setStock(newStock));
+    }
+    
+    /**
+     * 批量修改产品
+     * 修改在 ForkJoin 线程池中并行计算，不持有写锁；写锁内只校验版本号并安装新版本。
+     * 整批作为一次提交一起公开并持久化，读取方和快照要么看到全部修改，要么一个都看不到
+     * @param productIds 产品ID列表，同一ID出现多次时依次修改
+     * @param applicable 产品是否可以修改
+     * @param change 对副本的修改
+     * @return 批量修改结果
      */
-    public int batchUpdateStock(List<String> productIds, int newStock) {
-        int count = 0;
-        for (String id : productIds) {
-            Product product = productDatabase.get(id);
-            if (product != null) {
-                product.setStock(newStock);
-                count++;
+    private BatchUpdateResult batchUpdate(List<String> productIds, Predicate<Product> applicable, Consumer<Product> change) {
+        Durability durability = options.getDefaultDurability();
+        List<BatchUpdateEngine.Change> changes = batchUpdateEngine.prepare(productIds, applicable, change);
+        BatchUpdateResult result = new BatchUpdateResult();
+        CompletableFuture<Void> saved = null;
+        synchronized (writeLock) {
+            result.setConflictCount(batchUpdateEngine.revalidate(changes));
+            List<Product> updated = new ArrayList<>();
+            for (BatchUpdateEngine.Change prepared : changes) {
+                if (prepared.product != null) {
+                    updated.add(prepared.product);
+                    result.getUpdatedIds().add(prepared.id);
+                } else if (prepared.found) {
+                    result.getSkippedIds().add(prepared.id);
+                } else {
+                    result.getNotFoundIds().add(prepared.id);
+                }
+            }
+            if (!updated.isEmpty()) {
+                saved = commit(JournalRecord.batch(updated), durability); // 整批只保存一次
+                result.setStoreVersion(lastSeq);
             }
         }
-        if (count > 0) {
-            saveData(); // 保存数据到文件
+        if (saved != null) {
+            await(saved, durability);
+        }
+        return result;
+    }
+    
+    /**
+     * 批量预占结果类
+     */
+    public static class ReservationResult {
+        private boolean reserved;
+        private final List<String> failedIds = new ArrayList<>();
+        private final Map<String, Integer> available = new LinkedHashMap<>();
+        
+        /**
+         * 是否全部预占成功
+         */
+        public boolean isReserved() {
+            return reserved;
+        }
+        
+        void setReserved(boolean reserved) {
+            this.reserved = reserved;
+        }
+        
+        /**
+         * 不存在或可用库存不足的产品ID
+         */
+        public List<String> getFailedIds() {
+            return failedIds;
+        }
+        
+        /**
+         * 预占成功后各产品的可用库存
+         */
+        public Map<String, Integer> getAvailable() {
+            return available;
+        }
+    }
+    
+    /**
+     * 条件更新结果类
+     */
+    public static class UpdateResult {
+        
+        /**
+         * 更新结果状态
+         */
+        public enum Status {
+            UPDATED,
+            NOT_FOUND,
+            VERSION_CONFLICT,
+            INVALID
+        }
+        
+        private final Status status;
+        private final Product product;
+        private final List<String> errors;
+        
+        private UpdateResult(Status status, Product product, List<String> errors) {
+            this.status = status;
+            this.product = product;
+            this.errors = errors;
+        }
+        
+        static UpdateResult updated(Product product) {
+            return new UpdateResult(Status.UPDATED, product, Collections.<String>emptyList());
+        }
+        
+        static UpdateResult notFound() {
+            return new UpdateResult(Status.NOT_FOUND, null, Collections.singletonList("产品不存在"));
+        }
+        
+        static UpdateResult conflict(Product current) {
+            return new UpdateResult(Status.VERSION_CONFLICT, current,
+                    Collections.singletonList("产品已被修改，当前版本号为 " + current.getVersion()));
+        }
+        
+        static UpdateResult invalid(List<String> errors) {
+            return new UpdateResult(Status.INVALID, null, errors);
+        }
+        
+        public Status getStatus() {
+            return status;
+        }
+        
+        public boolean isUpdated() {
+            return status == Status.UPDATED;
+        }
+        
+        /**
+         * 成功时为新版本的产品，版本冲突时为当前版本的产品，其他情况为null
+         */
+        public Product getProduct() {
+            return product;
+        }
+        
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+    
+    /**
+     * 批量修改结果类
+     * 同一ID在结果中只出现一次
+     */
+    public static class BatchUpdateResult {
+        private final List<String> updatedIds = new ArrayList<>();
+        private final List<String> skippedIds = new ArrayList<>();
+        private final List<String> notFoundIds = new ArrayList<>();
+        private int conflictCount = 0;
+        private long storeVersion = -1;
+        
+        /**
+         * 已修改的产品ID
+         */
+        public List<String> getUpdatedIds() {
+            return updatedIds;
+        }
+        
+        /**
+         * 已修改的产品数
+         */
+        public int getUpdatedCount() {
+            return updatedIds.size();
+        }
+        
+        /**
+         * 存在但不满足修改条件的产品ID（如价格为空）
+         */
+        public List<String> getSkippedIds() {
+            return skippedIds;
+        }
+        
+        /**
+         * 不存在的产品ID
+         */
+        public List<String> getNotFoundIds() {
+            return notFoundIds;
+        }
+        
+        /**
+         * 计算期间被其他写入修改、在写锁内重新计算的产品数
+         */
+        public int getConflictCount() {
+            return conflictCount;
+        }
+        
+        void setConflictCount(int conflictCount) {
+            this.conflictCount = conflictCount;
+        }
+        
+        /**
+         * 本次修改提交后的数据版本号，没有修改时为-1
+         */
+        public long getStoreVersion() {
+            return storeVersion;
+        }
+        
+        void setStoreVersion(long storeVersion) {
+            this.storeVersion = storeVersion;
+        }
+    }
+    
+    /**
+     * 批量写入结果类
+     * 失败项按其在输入列表中的下标记录，便于调用方换算为行号
+     */
+    public static class BatchResult {
+        private int appliedCount = 0;
+        private final Map<Integer, String> failures = new TreeMap<>();
+        private final Set<Integer> skipped = new TreeSet<>();
+        
+        public int getAppliedCount() {
+            return appliedCount;
+        }
+        
+        void setAppliedCount(int appliedCount) {
+            this.appliedCount = appliedCount;
+        }
+        
+        /**
+         * 失败项，键为输入列表中的下标，值为失败原因
+         */
+        public Map<Integer, String> getFailures() {
+            return failures;
+        }
+        
+        void addFailure(int index, String reason) {
+            failures.put(index, reason);
+        }
+        
+        /**
+         * upsert 时被批次内后续同ID产品覆盖的下标
+         */
+        public Set<Integer> getSkipped() {
+            return skipped;
+        }
+        
+        void addSkipped(int index) {
+            skipped.add(index);
         }
-        return count;
     }
-}
\ No newline at end of file
+}
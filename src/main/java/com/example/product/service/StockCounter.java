@@ -0,0 +1,92 @@
+package com.example.product.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个产品的库存计数器
+ * 可用库存 = 库存 - 预占数量。预占和释放只在计数器上用 CAS 完成，不加锁、不持久化；
+ * 库存本身的变化（扣减、管理员修改）经过正常的提交流程后再同步到可用库存。
+ * 两个计数分别更新时总是先减后加，中间状态的可用库存只会偏少，不会超卖
+ */
+class StockCounter {
+    
+    // 可用库存，管理员把库存改得比预占数量还少时可能为负
+    private final AtomicInteger available;
+    
+    // 已预占、尚未扣减或释放的数量
+    private final AtomicInteger reserved = new AtomicInteger();
+    
+    StockCounter(int stock) {
+        this.available = new AtomicInteger(stock);
+    }
+    
+    /**
+     * 预占库存，可用库存不足时失败
+     * @param quantity 数量
+     * @return 成功返回true
+     */
+    boolean reserve(int quantity) {
+        int current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+        reserved.addAndGet(quantity);
+        return true;
+    }
+    
+    /**
+     * 释放预占的库存，超过已预占数量时失败
+     * @param quantity 数量
+     * @return 成功返回true
+     */
+    boolean release(int quantity) {
+        if (!unreserve(quantity)) {
+            return false;
+        }
+        available.addAndGet(quantity);
+        return true;
+    }
+    
+    /**
+     * 减少已预占数量，不归还可用库存，用于把预占转为扣减
+     * @param quantity 数量
+     * @return 已预占数量不足时返回false
+     */
+    boolean unreserve(int quantity) {
+        int current;
+        do {
+            current = reserved.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current - quantity));
+        return true;
+    }
+    
+    /**
+     * 恢复已预占数量，用于扣减失败时回滚 unreserve
+     * @param quantity 数量
+     */
+    void rereserve(int quantity) {
+        reserved.addAndGet(quantity);
+    }
+    
+    /**
+     * 调整可用库存
+     * @param delta 变化量
+     */
+    void adjust(int delta) {
+        available.addAndGet(delta);
+    }
+    
+    int getAvailable() {
+        return Math.max(0, available.get());
+    }
+    
+    int getReserved() {
+        return reserved.get();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.product.store;
+
+import com.example.product.model.Product;
+
+/**
+ * 不可修改的产品版本
+ * 存储中的产品都是这个类型，发布后被多个读线程、刷盘线程和快照共享，所有 setter 都会抛出异常。
+ * 需要修改时先用 new Product(frozen) 复制
+ */
+public final class FrozenProduct extends Product {
+    
+    private FrozenProduct(Product source, Long version) {
+        super(source);
+        super.setVersion(version);
+    }
+    
+    /**
+     * 取得产品的不可修改副本
+     * @param product 产品
+     * @return 已经不可修改时返回原对象，否则返回副本
+     */
+    public static FrozenProduct of(Product product) {
+        return product instanceof FrozenProduct ? (FrozenProduct) product : new FrozenProduct(product, product.getVersion());
+    }
+    
+    /**
+     * 取得产品在某个修改序号上的不可修改副本，版本号设为该序号
+     * @param product 产品
+     * @param version 版本号
+     * @return 已经是该版本的不可修改对象时返回原对象，否则返回副本
+     */
+    public static FrozenProduct of(Product product, long version) {
+        if (product instanceof FrozenProduct && product.getVersion() != null && product.getVersion() == version) {
+            return (FrozenProduct) product;
+        }
+        return new FrozenProduct(product, version);
+    }
+    
+    @Override
+    public void setId(String id) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setName(String name) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setDescription(String description) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setPrice(Double price) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setStock(Integer stock) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setCategory(String category) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setBrand(String brand) {
+        throw immutable();
+    }
+    
+    @Override
+    public void setVersion(Long version) {
+        throw immutable();
+    }
+    
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("已发布的产品版本不可修改，请先复制");
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.product.store;
+
+import com.example.product.model.Product;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多版本（MVCC）产品存储
+ * 每个产品保存一条按序号从新到旧的不可修改版本链。写入方在写锁内用同一个序号安装整次修改的所有版本，
+ * 最后调用 publish 一次性公开，读取方只看序号不超过已公开序号的版本，因此不会看到只应用了一半的批量修改。
+ * 读取不加锁；快照只记录一个序号，遍历期间写入方照常写入，快照释放后旧版本由清理队列回收
+ */
+public class ProductStore {
+    
+    // 每个产品ID的最新版本（可能是尚未公开或已删除的版本）
+    private final Map<String, Version> heads = new ConcurrentHashMap<>();
+    
+    // 持有中的快照序号及其数量，最小的序号之前的旧版本不能回收
+    private final ConcurrentSkipListMap<Long, Integer> activeSnapshots = new ConcurrentSkipListMap<>();
+    
+    // 产生了可回收旧版本的新版本，按序号先后排列
+    private final Queue<Version> vacuumQueue = new ConcurrentLinkedQueue<>();
+    
+    // 同一时间只有一个线程清理
+    private final AtomicBoolean vacuuming = new AtomicBoolean();
+    
+    // 尚未公开的产品数变化
+    private final AtomicLong pendingDelta = new AtomicLong();
+    
+    // 已公开的序号和对应的产品数，两者一起替换
+    private volatile Published published = new Published(0, 0);
+    
+    /**
+     * 启动时加载一个产品，可由多个线程同时调用
+     * 加载的产品序号为0，对所有快照可见，版本号保持不变；加载完成后需调用 publish
+     * @param product 产品
+     */
+    public void load(Product product) {
+        Version previous = heads.put(product.getId(), new Version(product.getId(), 0, FrozenProduct.of(product), null));
+        if (previous == null) {
+            pendingDelta.incrementAndGet();
+        }
+    }
+    
+    /**
+     * 安装产品的新版本，调用方需持有写锁，且序号大于已公开的序号
+     * 存储的副本的版本号设为本次修改的序号
+     * @param seq 本次修改的序号
+     * @param product 产品
+     * @return 被替换的版本，产品原来不存在时返回null
+     */
+    public FrozenProduct put(long seq, Product product) {
+        Version head = heads.get(product.getId());
+        Version version = new Version(product.getId(), seq, FrozenProduct.of(product, seq), head);
+        heads.put(product.getId(), version);
+        if (head == null || head.product == null) {
+            pendingDelta.incrementAndGet();
+        }
+        if (head != null) {
+            vacuumQueue.add(version);
+        }
+        return head != null ? head.product : null;
+    }
+    
+    /**
+     * 删除产品，安装一个删除标记版本，调用方需持有写锁
+     * @param seq 本次修改的序号
+     * @param id 产品ID
+     * @return 被删除的版本，产品不存在时返回null
+     */
+    public FrozenProduct remove(long seq, String id) {
+        Version head = heads.get(id);
+        if (head == null || head.product == null) {
+            return null;
+        }
+        Version tombstone = new Version(id, seq, null, head);
+        heads.put(id, tombstone);
+        pendingDelta.decrementAndGet();
+        vacuumQueue.add(tombstone);
+        return head.product;
+    }
+    
+    /**
+     * 公开序号不超过 seq 的所有版本
+     * @param seq 序号
+     */
+    public void publish(long seq) {
+        Published current = published;
+        published = new Published(Math.max(seq, current.seq), current.count + pendingDelta.getAndSet(0));
+        vacuum();
+    }
+    
+    /**
+     * 已公开的最新版本
+     * @param id 产品ID
+     * @return 产品，不存在时返回null
+     */
+    public FrozenProduct get(String id) {
+        Version version = visibleVersion(id);
+        return version != null ? version.product : null;
+    }
+    
+    /**
+     * 已公开的最新版本及其序号
+     * @param id 产品ID
+     * @return 版本，不存在时返回null
+     */
+    public Version getVersion(String id) {
+        return visibleVersion(id);
+    }
+    
+    /**
+     * 包括未公开修改在内的最新版本，只供持有写锁的写入方读取自己的修改
+     * @param id 产品ID
+     * @return 产品，不存在时返回null
+     */
+    public FrozenProduct latest(String id) {
+        Version head = heads.get(id);
+        return head != null ? head.product : null;
+    }
+    
+    /**
+     * 包括未公开修改在内的最新版本的序号，供持有写锁的写入方校验读取之后是否有其他修改
+     * @param id 产品ID
+     * @return 序号，不存在时返回-1
+     */
+    public long latestSeq(String id) {
+        Version head = heads.get(id);
+        return head != null && head.product != null ? head.seq : -1;
+    }
+    
+    /**
+     * 已公开的产品数
+     * @return 产品数
+     */
+    public int size() {
+        return (int) published.count;
+    }
+    
+    /**
+     * 已公开的序号
+     * @return 序号
+     */
+    public long getPublishedSeq() {
+        return published.seq;
+    }
+    
+    /**
+     * 当前已公开的数据的快照，使用完毕后必须关闭
+     * @return 快照
+     */
+    public StoreSnapshot snapshot() {
+        while (true) {
+            Published current = published;
+            activeSnapshots.merge(current.seq, 1, Integer::sum);
+            // 登记之前可能已有新的公开并清理了这个序号需要的旧版本，此时重新登记
+            if (published == current) {
+                return new StoreSnapshot(this, current.seq, (int) current.count);
+            }
+            release(current.seq);
+        }
+    }
+    
+    /**
+     * 持有中的快照数
+     * @return 快照数
+     */
+    public int getActiveSnapshotCount() {
+        int count = 0;
+        for (Integer value : activeSnapshots.values()) {
+            count += value;
+        }
+        return count;
+    }
+    
+    /**
+     * 释放快照
+     * @param seq 快照序号
+     */
+    void release(long seq) {
+        activeSnapshots.computeIfPresent(seq, (key, count) -> count == 1 ? null : count - 1);
+        vacuum();
+    }
+    
+    Version head(String id) {
+        return heads.get(id);
+    }
+    
+    Iterable<Version> heads() {
+        return heads.values();
+    }
+    
+    /**
+     * 不加锁地读取已公开的版本
+     * 清理可能在读取期间截断版本链，遇到这种情况时按新的公开序号重读
+     */
+    private Version visibleVersion(String id) {
+        while (true) {
+            long seq = published.seq;
+            Version head = heads.get(id);
+            if (head == null) {
+                return null;
+            }
+            Version version = head.visibleAt(seq);
+            if (version != null || !head.truncatedBefore(seq)) {
+                return version;
+            }
+        }
+    }
+    
+    /**
+     * 回收所有快照都不再需要的旧版本和删除标记
+     * 一个版本的序号不超过最老的快照序号和已公开序号时，比它更旧的版本对任何读取方都不可见
+     */
+    private void vacuum() {
+        if (!vacuuming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long horizon = published.seq;
+            Map.Entry<Long, Integer> oldest = activeSnapshots.firstEntry();
+            if (oldest != null) {
+                horizon = Math.min(horizon, oldest.getKey());
+            }
+            Version version;
+            while ((version = vacuumQueue.peek()) != null && version.seq <= horizon) {
+                vacuumQueue.poll();
+                version.previous = null;
+                if (version.product == null) {
+                    heads.remove(version.id, version);
+                }
+            }
+        } finally {
+            vacuuming.set(false);
+        }
+    }
+    
+    /**
+     * 一个产品的一个版本，product 为null表示删除标记
+     */
+    public static final class Version {
+        final String id;
+        final long seq;
+        final FrozenProduct product;
+        // 创建时没有更旧的版本
+        final boolean first;
+        volatile Version previous;
+        
+        Version(String id, long seq, FrozenProduct product, Version previous) {
+            this.id = id;
+            this.seq = seq;
+            this.product = product;
+            this.first = previous == null;
+            this.previous = previous;
+        }
+        
+        /**
+         * 安装这个版本的修改序号
+         */
+        public long getSeq() {
+            return seq;
+        }
+        
+        /**
+         * 这个版本的产品
+         */
+        public FrozenProduct getProduct() {
+            return product;
+        }
+        
+        /**
+         * 序号不超过 seq 的最新版本
+         * @return 版本，不存在或已删除时返回null
+         */
+        Version visibleAt(long seq) {
+            Version version = this;
+            while (version != null && version.seq > seq) {
+                version = version.previous;
+            }
+            return version != null && version.product != null ? version : null;
+        }
+        
+        /**
+         * 链上的版本都比 seq 新，而更旧的版本已被回收
+         */
+        boolean truncatedBefore(long seq) {
+            Version version = this;
+            while (version.seq > seq) {
+                Version previous = version.previous;
+                if (previous == null) {
+                    return !version.first;
+                }
+                version = previous;
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * 已公开的序号和产品数
+     */
+    private static final class Published {
+        final long seq;
+        final long count;
+        
+        Published(long seq, long count) {
+            this.seq = seq;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.product.store;
+
+import com.example.product.model.Product;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 产品存储在某个序号上的只读快照
+ * 创建时只记录序号，遍历时沿版本链取出不晚于该序号的版本，不复制数据，也不阻塞写入。
+ * 快照持有期间旧版本不会被回收，使用完毕后必须关闭（可用 try-with-resources）
+ */
+public class StoreSnapshot extends AbstractCollection<Product> implements AutoCloseable {
+    
+    private final ProductStore store;
+    
+    private final long seq;
+    
+    private final int size;
+    
+    private boolean closed;
+    
+    StoreSnapshot(ProductStore store, long seq, int size) {
+        this.store = store;
+        this.seq = seq;
+        this.size = size;
+    }
+    
+    /**
+     * 快照对应的序号，快照包含序号不超过它的所有修改
+     * @return 序号
+     */
+    public long getSeq() {
+        return seq;
+    }
+    
+    /**
+     * 快照中的产品
+     * @param id 产品ID
+     * @return 产品，不存在时返回null
+     */
+    public Product get(String id) {
+        ProductStore.Version head = store.head(id);
+        ProductStore.Version version = head != null ? head.visibleAt(seq) : null;
+        return version != null ? version.product : null;
+    }
+    
+    /**
+     * 按ID取出快照中的产品，跳过不存在的ID
+     * @param ids 产品ID
+     * @return 产品列表
+     */
+    public List<Product> getAll(Collection<String> ids) {
+        List<Product> products = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public Iterator<Product> iterator() {
+        Iterator<ProductStore.Version> heads = store.heads().iterator();
+        return new Iterator<Product>() {
+            private Product next;
+            
+            @Override
+            public boolean hasNext() {
+                while (next == null && heads.hasNext()) {
+                    ProductStore.Version version = heads.next().visibleAt(seq);
+                    if (version != null) {
+                        next = version.product;
+                    }
+                }
+                return next != null;
+            }
+            
+            @Override
+            public Product next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Product product = next;
+                next = null;
+                return product;
+            }
+        };
+    }
+    
+    /**
+     * 释放快照，允许回收它需要的旧版本，重复调用无效
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            store.release(seq);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.product.util;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * CSV处理工具类
+ * 导入时按表头中的列名（ID, 名称, 品牌, 分类, 价格, 库存, 描述）对应各列，列的顺序不限，
+ * 因此导出的文件（ID, 名称, 描述, 价格, 库存, 分类, 品牌）可以直接导入；
+ * 表头中没有任何已知列名时按 ID, 名称, 品牌, 分类, 价格, 库存, 描述 的顺序读取。
+ * 按RFC 4180解析引号、转义引号和引号内换行，第一行为表头
+ */
+public class CsvUtil {
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    /**
+     * 从CSV读取产品数据，每解析完一条记录交给consumer
+     * 解析直接在字符缓冲区上进行，只为每个字段生成一次字符串
+     * @param channel 输入通道（UTF-8编码）
+     * @param consumer 产品处理函数
+     * @return 读取的产品数量
+     * @throws IOException IO异常或编码错误
+     */
+    public static int readProductsFromCsv(ReadableByteChannel channel, Consumer<ExcelProduct> consumer) throws IOException {
+        Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE);
+        RecordParser parser = new RecordParser(consumer);
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        boolean first = true;
+        while ((read = reader.read(buffer)) != -1) {
+            int start = 0;
+            // 跳过UTF-8 BOM
+            if (first && read > 0 && buffer[0] == '\uFEFF') {
+                start = 1;
+            }
+            first = false;
+            for (int i = start; i < read; i++) {
+                parser.accept(buffer[i]);
+            }
+        }
+        parser.finish();
+        return parser.count;
+    }
+    
+    /**
+     * CSV记录解析状态机
+     */
+    private static class RecordParser {
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3;
+        
+        private final Consumer<ExcelProduct> consumer;
+        // 各导入字段（按 IMPORT_HEADERS 的顺序）所在的列，-1表示文件中没有该列
+        private final int[] positions = new int[ExcelUtil.IMPORT_COLUMNS];
+        // 当前记录各列的值，长度在读取表头时确定
+        private String[] fields = new String[ExcelUtil.IMPORT_COLUMNS];
+        private final StringBuilder field = new StringBuilder();
+        private int state = FIELD_START;
+        private int column;
+        private boolean recordStarted;
+        private int record;
+        private int count;
+        
+        RecordParser(Consumer<ExcelProduct> consumer) {
+            this.consumer = consumer;
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = i;
+            }
+        }
+        
+        void accept(char c) {
+            if (c == '\r' && state != QUOTED) {
+                // 行尾的CR与LF一起处理
+                return;
+            }
+            recordStarted = true;
+            switch (state) {
+                case FIELD_START:
+                    if (c == '"') {
+                        state = QUOTED;
+                        return;
+                    }
+                    state = UNQUOTED;
+                    acceptUnquoted(c);
+                    return;
+                case UNQUOTED:
+                    acceptUnquoted(c);
+                    return;
+                case QUOTED:
+                    if (c == '"') {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        field.append(c);
+                    }
+                    return;
+                default:
+                    if (c == '"') {
+                        // 引号内的 "" 表示一个引号
+                        field.append('"');
+                        state = QUOTED;
+                    } else {
+                        state = UNQUOTED;
+                        acceptUnquoted(c);
+                    }
+            }
+        }
+        
+        private void acceptUnquoted(char c) {
+            if (c == ',') {
+                endField();
+            } else if (c == '\n') {
+                endRecord();
+            } else {
+                field.append(c);
+            }
+        }
+        
+        private void endField() {
+            if (record == 0 && column == fields.length) {
+                fields = Arrays.copyOf(fields, column + 1);
+            }
+            if (column < fields.length) {
+                fields[column] = field.length() == 0 ? null : field.toString();
+            }
+            column++;
+            field.setLength(0);
+            state = FIELD_START;
+        }
+        
+        private void endRecord() {
+            endField();
+            boolean blank = column == 1 && fields[0] == null;
+            if (record == 0) {
+                mapHeader();
+            } else if (!blank) {
+                // 行号从表头算起（空行也计数），与Excel导入一致
+                int rowNumber = record + 1;
+                consumer.accept(ExcelUtil.buildProduct(rowNumber, value(0), value(1), value(2), value(3),
+                        ExcelUtil.parseDouble(value(4)), ExcelUtil.parseInteger(value(5)), value(6)));
+                count++;
+            }
+            record++;
+            reset();
+        }
+        
+        /**
+         * 按表头中的列名确定各导入字段所在的列，没有已知列名时保留默认顺序
+         */
+        private void mapHeader() {
+            int[] mapped = new int[positions.length];
+            Arrays.fill(mapped, -1);
+            boolean named = false;
+            List<String> names = Arrays.asList(ExcelUtil.IMPORT_HEADERS);
+            for (int i = 0; i < Math.min(column, fields.length); i++) {
+                int index = fields[i] != null ? names.indexOf(fields[i].trim()) : -1;
+                if (index >= 0 && mapped[index] < 0) {
+                    mapped[index] = i;
+                    named = true;
+                }
+            }
+            if (named) {
+                System.arraycopy(mapped, 0, positions, 0, positions.length);
+            }
+        }
+        
+        private String value(int index) {
+            return positions[index] >= 0 ? fields[positions[index]] : null;
+        }
+        
+        private void reset() {
+            Arrays.fill(fields, null);
+            column = 0;
+            recordStarted = false;
+            state = FIELD_START;
+        }
+        
+        void finish() {
+            if (recordStarted) {
+                endRecord();
+            }
+        }
+    }
+    
+    /**
+     * 将产品数据写入CSV
+     * @param products 产品数据，只遍历一次
+     * @param channel 输出通道，不会被关闭
+     * @return 写入的产品数量
+     * @throws IOException IO异常
+     */
+    public static int writeProductsToCsv(Iterable<? extends Product> products, WritableByteChannel channel) throws IOException {
+        Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        String[] headers = ExcelUtil.EXPORT_HEADERS;
+        for (int i = 0; i < headers.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(headers[i]);
+        }
+        writer.write('\n');
+        
+        int count = 0;
+        for (Product product : products) {
+            writeField(writer, product.getId());
+            writer.write(',');
+            writeField(writer, product.getName());
+            writer.write(',');
+            writeField(writer, product.getDescription());
+            writer.write(',');
+            if (product.getPrice() != null) {
+                // 避免科学计数法（如 1.0E7）
+                writer.write(BigDecimal.valueOf(product.getPrice()).toPlainString());
+            }
+            writer.write(',');
+            if (product.getStock() != null) {
+                writer.write(Integer.toString(product.getStock()));
+            }
+            writer.write(',');
+            writeField(writer, product.getCategory());
+            writer.write(',');
+            writeField(writer, product.getBrand());
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+    
+    /**
+     * 写入一个文本字段，包含逗号、引号或换行时加引号
+     */
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
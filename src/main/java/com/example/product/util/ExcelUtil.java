@@ -1,21 +1,46 @@
 package com.example.product.util;
 
 import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Excel处理工具类
  */
 public class ExcelUtil {
     
+    // 导入列的默认顺序，CSV导入时按表头中的这些列名对应
+    static final String[] IMPORT_HEADERS = {"ID", "名称", "品牌", "分类", "价格", "库存", "描述"};
+    
+    // 导入列数: ID, 名称, 品牌, 分类, 价格, 库存, 描述
+    static final int IMPORT_COLUMNS = IMPORT_HEADERS.length;
+    
     /**
      * 从Excel文件中读取产品数据
      * @param filePath Excel文件路径
@@ -24,19 +49,43 @@ public class ExcelUtil {
      */
     public static List<ExcelProduct> readProductsFromExcel(String filePath) throws IOException {
         List<ExcelProduct> products = new ArrayList<>();
+        readProductsFromExcel(filePath, products::add);
+        return products;
+    }
+    
+    /**
+     * 从Excel文件中逐行读取产品数据
+     * .xlsx 文件使用SAX事件模式流式解析，内存占用与文件大小无关；.xls 文件仍整体加载
+     * @param filePath Excel文件路径
+     * @param consumer 产品处理函数，每读到一行调用一次
+     * @return 读取的产品数量
+     * @throws IOException IO异常
+     */
+    public static int readProductsFromExcel(String filePath, Consumer<ExcelProduct> consumer) throws IOException {
+        if (filePath.endsWith(".xlsx")) {
+            return streamProductsFromXlsx(filePath, consumer);
+        } else if (filePath.endsWith(".xls")) {
+            return readProductsFromWorkbook(filePath, consumer);
+        } else {
+            throw new IllegalArgumentException("不支持的文件格式: " + filePath);
+        }
+    }
+    
+    /**
+     * 使用用户模型（整体加载）读取.xls文件
+     * @param filePath Excel文件路径
+     * @param consumer 产品处理函数
+     * @return 读取的产品数量
+     * @throws IOException IO异常
+     */
+    private static int readProductsFromWorkbook(String filePath, Consumer<ExcelProduct> consumer) throws IOException {
+        int count = 0;
         
         FileInputStream fis = new FileInputStream(filePath);
         Workbook workbook = null;
         
         try {
-            // 根据文件扩展名选择适当的Workbook实现
-            if (filePath.endsWith(".xlsx")) {
-                workbook = new XSSFWorkbook(fis);
-            } else if (filePath.endsWith(".xls")) {
-                workbook = new HSSFWorkbook(fis);
-            } else {
-                throw new IllegalArgumentException("不支持的文件格式: " + filePath);
-            }
+            workbook = new HSSFWorkbook(fis);
             
             Sheet sheet = workbook.getSheetAt(0); // 读取第一个工作表
             
@@ -52,7 +101,8 @@ public class ExcelUtil {
                 if (row != null) {
                     ExcelProduct product = readProductFromRow(row, i + 1);
                     if (product != null) {
-                        products.add(product);
+                        consumer.accept(product);
+                        count++;
                     }
                 }
             }
@@ -63,7 +113,111 @@ public class ExcelUtil {
             fis.close();
         }
         
-        return products;
+        return count;
+    }
+    
+    /**
+     * 使用SAX事件模式流式读取.xlsx文件的第一个工作表
+     * 不构建工作表DOM，每解析完一行就交给consumer
+     * @param filePath Excel文件路径
+     * @param consumer 产品处理函数
+     * @return 读取的产品数量
+     * @throws IOException IO异常
+     */
+    public static int streamProductsFromXlsx(String filePath, Consumer<ExcelProduct> consumer) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(filePath, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("无法打开Excel文件: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Excel文件格式错误：缺少工作表");
+            }
+            
+            ProductRowHandler handler = new ProductRowHandler(consumer);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, handler, new RawNumberFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+            if (!handler.headerSeen) {
+                throw new IllegalArgumentException("Excel文件格式错误：缺少表头");
+            }
+            return handler.count;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("解析Excel文件失败: " + e.getMessage(), e);
+        } finally {
+            // 只读打开的包使用revert关闭，避免尝试回写文件
+            pkg.revert();
+        }
+    }
+    
+    /**
+     * 数值单元格返回原始数值而不是按单元格格式显示的文本，
+     * 否则 #,##0.00、货币、百分比等格式的价格和库存无法解析，较大的常规格式ID也会变成科学计数法；
+     * 日期格式仍按格式显示
+     */
+    private static class RawNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString)) {
+                return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+            }
+            return numberToString(value);
+        }
+    }
+    
+    /**
+     * SAX行处理器
+     * 收集一行中前7列的格式化文本，行结束时按与 readProductFromRow 相同的列映射生成产品
+     */
+    private static class ProductRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final Consumer<ExcelProduct> consumer;
+        private final String[] values = new String[IMPORT_COLUMNS];
+        private int nextColumn;
+        private boolean headerSeen;
+        private int count;
+        
+        ProductRowHandler(Consumer<ExcelProduct> consumer) {
+            this.consumer = consumer;
+        }
+        
+        @Override
+        public void startRow(int rowNum) {
+            if (!headerSeen && rowNum != 0) {
+                throw new IllegalArgumentException("Excel文件格式错误：缺少表头");
+            }
+            Arrays.fill(values, null);
+            nextColumn = 0;
+        }
+        
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum == 0) {
+                headerSeen = true;
+                return;
+            }
+            ExcelProduct product = readProductFromValues(values, rowNum + 1);
+            if (product != null) {
+                consumer.accept(product);
+                count++;
+            }
+        }
+        
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (column < IMPORT_COLUMNS) {
+                values[column] = formattedValue;
+            }
+        }
     }
     
     /**
@@ -73,11 +227,8 @@ public class ExcelUtil {
      * @return 产品对象
      */
     private static ExcelProduct readProductFromRow(Row row, int rowNumber) {
-        ExcelProduct product = new ExcelProduct();
-        product.setRowNumber(rowNumber);
-        
         try {
-            // 读取各列数据 (假设列顺序为: ID, 名称, 描述, 价格, 库存, 分类)
+            // 读取各列数据 (列顺序为: ID, 名称, 品牌, 分类, 价格, 库存, 描述)
             Cell idCell = row.getCell(0);
             Cell nameCell = row.getCell(1);
             Cell brandCell = row.getCell(2); // 品牌列
@@ -86,44 +237,14 @@ public class ExcelUtil {
             Cell stockCell = row.getCell(5); // 库存列
             Cell descriptionCell = row.getCell(6); // 描述列
             
-            if (idCell != null) {
-                product.setId(getCellValueAsString(idCell));
-            }
-            
-            if (nameCell != null) {
-                product.setName(getCellValueAsString(nameCell));
-            }
-            
-            // 如果品牌存在，则将其添加到描述中
-            if (brandCell != null) {
-                String brand = getCellValueAsString(brandCell);
-                if (brand != null && !brand.isEmpty()) {
-                    product.setDescription((product.getDescription() != null ? product.getDescription() + " " : "") + "品牌: " + brand);
-                }
-            }
-            
-            if (categoryCell != null) {
-                product.setCategory(getCellValueAsString(categoryCell));
-            }
-            
-            if (priceCell != null) {
-                Double price = getCellValueAsDouble(priceCell);
-                product.setPrice(price);
-            }
-            
-            if (stockCell != null) {
-                Integer stock = getCellValueAsInteger(stockCell);
-                product.setStock(stock);
-            }
-            
-            if (descriptionCell != null) {
-                String description = getCellValueAsString(descriptionCell);
-                if (description != null && !description.isEmpty()) {
-                    product.setDescription((product.getDescription() != null ? product.getDescription() + " " : "") + description);
-                }
-            }
-            
-            return product;
+            return buildProduct(rowNumber,
+                    idCell != null ? getCellValueAsString(idCell) : null,
+                    nameCell != null ? getCellValueAsString(nameCell) : null,
+                    brandCell != null ? getCellValueAsString(brandCell) : null,
+                    categoryCell != null ? getCellValueAsString(categoryCell) : null,
+                    priceCell != null ? getCellValueAsDouble(priceCell) : null,
+                    stockCell != null ? getCellValueAsInteger(stockCell) : null,
+                    descriptionCell != null ? getCellValueAsString(descriptionCell) : null);
         } catch (Exception e) {
             // 发生异常时返回null，表示该行数据无效
             System.err.println("读取第" + rowNumber + "行数据时发生错误: " + e.getMessage());
@@ -132,6 +253,69 @@ public class ExcelUtil {
         }
     }
     
+    /**
+     * 从SAX解析得到的单元格文本中读取产品数据
+     * @param values 各列文本，缺失的单元格为null
+     * @param rowNumber 行号（用于错误提示）
+     * @return 产品对象
+     */
+    private static ExcelProduct readProductFromValues(String[] values, int rowNumber) {
+        try {
+            return buildProduct(rowNumber, values[0], values[1], values[2], values[3],
+                    parseDouble(values[4]), parseInteger(values[5]), values[6]);
+        } catch (Exception e) {
+            System.err.println("读取第" + rowNumber + "行数据时发生错误: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 按导入列映射组装产品，品牌和分类经过共享字典，不再拼接到描述中
+     */
+    static ExcelProduct buildProduct(int rowNumber, String id, String name, String brand, String category,
+                                     Double price, Integer stock, String description) {
+        ExcelProduct product = new ExcelProduct();
+        product.setRowNumber(rowNumber);
+        product.setId(id);
+        product.setName(name);
+        if (brand != null && !brand.isEmpty()) {
+            product.setBrand(brand);
+        }
+        product.setCategory(category);
+        product.setPrice(price);
+        product.setStock(stock);
+        if (description != null && !description.isEmpty()) {
+            product.setDescription(description);
+        }
+        return product;
+    }
+    
+    /**
+     * 解析数字文本为double值
+     * @param value 文本
+     * @return double值，无法解析时返回null
+     */
+    static Double parseDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 解析数字文本为integer值，小数部分截断（与数值单元格的处理一致）
+     * @param value 文本
+     * @return integer值，无法解析时返回null
+     */
+    static Integer parseInteger(String value) {
+        Double number = parseDouble(value);
+        return number != null ? (int) number.doubleValue() : null;
+    }
+    
     /**
      * 获取单元格的字符串值
      * @param cell 单元格
@@ -145,13 +329,7 @@ public class ExcelUtil {
                 if (DateUtil.isCellDateFormatted(cell)) {
                     return cell.getDateCellValue().toString();
                 } else {
-                    // 数字转字符串，去掉小数点后的.0
-                    double numericValue = cell.getNumericCellValue();
-                    if (numericValue == Math.floor(numericValue)) {
-                        return String.valueOf((long) numericValue);
-                    } else {
-                        return String.valueOf(numericValue);
-                    }
+                    return numberToString(cell.getNumericCellValue());
                 }
             case BOOLEAN:
                 return String.valueOf(cell.getBooleanCellValue());
@@ -162,6 +340,18 @@ public class ExcelUtil {
         }
     }
     
+    /**
+     * 数字转字符串，去掉整数后面的.0
+     * @param value 数值
+     * @return 字符串
+     */
+    private static String numberToString(double value) {
+        if (value == Math.floor(value) && !Double.isInfinite(value)) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+    
     /**
      * 获取单元格的double值
      * @param cell 单元格
@@ -202,49 +392,136 @@ public class ExcelUtil {
         }
     }
     
+    // 导出表头
+    static final String[] EXPORT_HEADERS = {"ID", "名称", "描述", "价格", "库存", "分类", "品牌"};
+    
+    // 流式导出时内存中保留的行数，超出的行写入临时文件
+    private static final int EXPORT_WINDOW_SIZE = 100;
+    
+    // 导出列宽上限（字符数）
+    private static final int MAX_COLUMN_CHARS = 80;
+    
     /**
      * 将产品数据写入Excel文件
-     * @param products 产品列表
+     * @param products 产品数据
      * @param filePath 输出文件路径
      * @throws IOException IO异常
      */
-    public static void writeProductsToExcel(List<ExcelProduct> products, String filePath) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("产品数据");
-        
-        // 创建表头
-        Row headerRow = sheet.createRow(0);
-        String[] headers = {"ID", "名称", "描述", "价格", "库存", "分类"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
+    public static void writeProductsToExcel(Iterable<? extends Product> products, String filePath) throws IOException {
+        FileOutputStream fos = new FileOutputStream(filePath);
+        try {
+            writeProductsToExcel(products, fos);
+        } finally {
+            fos.close();
         }
-        
-        // 写入数据
-        for (int i = 0; i < products.size(); i++) {
-            ExcelProduct product = products.get(i);
-            Row row = sheet.createRow(i + 1);
+    }
+    
+    /**
+     * 以流式方式将产品数据写入Excel
+     * 使用滑动窗口的SXSSFWorkbook，内存中只保留最近的若干行；
+     * 列宽根据写入过程中统计的文本长度估算，不再逐个单元格测量（autoSizeColumn）
+     * @param products 产品数据，只遍历一次
+     * @param out 输出流，不会被关闭
+     * @throws IOException IO异常
+     */
+    public static void writeProductsToExcel(Iterable<? extends Product> products, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXPORT_WINDOW_SIZE);
+        // 临时文件压缩，降低大批量导出的磁盘占用
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("产品数据");
+            ColumnWidthStats[] widths = new ColumnWidthStats[EXPORT_HEADERS.length];
+            
+            // 创建表头
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < EXPORT_HEADERS.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(EXPORT_HEADERS[i]);
+                widths[i] = new ColumnWidthStats(displayWidth(EXPORT_HEADERS[i]));
+            }
+            
+            // 写入数据
+            int rowIndex = 1;
+            for (Product product : products) {
+                Row row = sheet.createRow(rowIndex++);
+                setText(row, 0, product.getId(), widths);
+                setText(row, 1, product.getName(), widths);
+                setText(row, 2, product.getDescription(), widths);
+                if (product.getPrice() != null) {
+                    row.createCell(3).setCellValue(product.getPrice());
+                    widths[3].add(displayWidth(String.valueOf(product.getPrice())));
+                }
+                if (product.getStock() != null) {
+                    row.createCell(4).setCellValue(product.getStock());
+                    widths[4].add(displayWidth(String.valueOf(product.getStock())));
+                }
+                setText(row, 5, product.getCategory(), widths);
+                setText(row, 6, product.getBrand(), widths);
+            }
             
-            row.createCell(0).setCellValue(product.getId());
-            row.createCell(1).setCellValue(product.getName());
-            row.createCell(2).setCellValue(product.getDescription());
-            row.createCell(3).setCellValue(product.getPrice());
-            row.createCell(4).setCellValue(product.getStock());
-            row.createCell(5).setCellValue(product.getCategory());
+            // 根据统计结果设置列宽
+            for (int i = 0; i < EXPORT_HEADERS.length; i++) {
+                sheet.setColumnWidth(i, widths[i].columnWidth());
+            }
+            
+            workbook.write(out);
+        } finally {
+            workbook.close();
+            workbook.dispose(); // 删除临时文件
         }
+    }
+    
+    private static void setText(Row row, int column, String value, ColumnWidthStats[] widths) {
+        if (value == null) {
+            return;
+        }
+        row.createCell(column).setCellValue(value);
+        widths[column].add(displayWidth(value));
+    }
+    
+    /**
+     * 文本的显示宽度（字符数），中日韩等全角字符按2个字符计算
+     */
+    private static int displayWidth(String value) {
+        int width = 0;
+        for (int i = 0; i < value.length(); i++) {
+            width += value.charAt(i) >= 0x2E80 ? 2 : 1;
+        }
+        return width;
+    }
+    
+    /**
+     * 列宽统计
+     * 记录文本长度的均值、方差和最大值，列宽取 min(最大值, 均值 + 2倍标准差)，
+     * 避免个别超长单元格把整列撑宽
+     */
+    private static class ColumnWidthStats {
+        private final int headerWidth;
+        private long count;
+        private double sum;
+        private double sumOfSquares;
+        private int max;
         
-        // 自动调整列宽
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+        ColumnWidthStats(int headerWidth) {
+            this.headerWidth = headerWidth;
         }
         
-        // 写入文件
-        FileOutputStream fos = new FileOutputStream(filePath);
-        try {
-            workbook.write(fos);
-        } finally {
-            fos.close();
-            workbook.close();
+        void add(int width) {
+            count++;
+            sum += width;
+            sumOfSquares += (double) width * width;
+            max = Math.max(max, width);
+        }
+        
+        int columnWidth() {
+            int chars = headerWidth;
+            if (count > 0) {
+                double mean = sum / count;
+                double deviation = Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+                chars = Math.max(chars, (int) Math.ceil(Math.min(max, mean + 2 * deviation)));
+            }
+            // 列宽单位为1/256个字符，另留2个字符的边距
+            return Math.min(MAX_COLUMN_CHARS, chars + 2) * 256;
         }
     }
-}
\ No newline at end of file
+}
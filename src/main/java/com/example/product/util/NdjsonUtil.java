@@ -0,0 +1,76 @@
+package com.example.product.util;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * NDJSON（每行一个JSON对象）处理工具类
+ * 字段与 Product 的JSON表示相同
+ */
+public class NdjsonUtil {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+    
+    private static final ObjectReader PRODUCT_READER = OBJECT_MAPPER.readerFor(ExcelProduct.class);
+    
+    /**
+     * 从NDJSON读取产品数据，行号记录在 rowNumber 中
+     * @param channel 输入通道（UTF-8编码）
+     * @param consumer 产品处理函数
+     * @return 读取的产品数量
+     * @throws IOException IO异常，或某一行不是JSON对象
+     */
+    public static int readProductsFromNdjson(ReadableByteChannel channel, Consumer<ExcelProduct> consumer) throws IOException {
+        int count = 0;
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(Channels.newInputStream(channel))) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                int line = parser.getTokenLocation().getLineNr();
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("第" + line + "行不是JSON对象");
+                }
+                ExcelProduct product = PRODUCT_READER.readValue(parser);
+                product.setRowNumber(line);
+                consumer.accept(product);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 将产品数据写入NDJSON
+     * @param products 产品数据，只遍历一次
+     * @param channel 输出通道，不会被关闭
+     * @return 写入的产品数量
+     * @throws IOException IO异常
+     */
+    public static int writeProductsToNdjson(Iterable<? extends Product> products, WritableByteChannel channel) throws IOException {
+        int count = 0;
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(Channels.newOutputStream(channel))) {
+            // 每行末尾自己写换行，不需要默认的根值分隔空格
+            generator.setRootValueSeparator(null);
+            for (Product product : products) {
+                generator.writeObject(product);
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.product.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 共享字符串字典
+ * 分类、品牌这类取值很少的字段在导入、加载快照和解析请求时每行都会产生新的字符串，
+ * 经过字典后相同的值只保留一个实例。与 String.intern() 相比不占用JVM字符串表，并且有数量上限：
+ * 超过上限后新值不再加入字典，原样返回，避免取值任意的数据占满内存
+ */
+public final class StringDictionary {
+    
+    // 字典最多保存的不同字符串数
+    static final int MAX_ENTRIES = 1 << 16;
+    
+    private static final ConcurrentHashMap<String, String> VALUES = new ConcurrentHashMap<>();
+    
+    private StringDictionary() {
+    }
+    
+    /**
+     * 取得与参数相等的共享实例
+     * @param value 字符串
+     * @return 字典中的实例；参数为null或字典已满且不包含该值时返回参数本身
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = VALUES.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (VALUES.size() >= MAX_ENTRIES) {
+            return value;
+        }
+        shared = VALUES.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+    
+    /**
+     * 字典中的字符串数
+     * @return 字符串数
+     */
+    public static int size() {
+        return VALUES.size();
+    }
+}
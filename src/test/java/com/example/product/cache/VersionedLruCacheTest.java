@@ -0,0 +1,95 @@
+package com.example.product.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VersionedLruCache单元测试类
+ */
+class VersionedLruCacheTest {
+    
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        VersionedLruCache<String, String> cache = new VersionedLruCache<>(2);
+        cache.put("a", 1, "A");
+        cache.put("b", 1, "B");
+        assertEquals("A", cache.get("a", 1));
+        cache.put("c", 1, "C");
+        
+        assertNull(cache.get("b", 1));
+        assertEquals("A", cache.get("a", 1));
+        assertEquals("C", cache.get("c", 1));
+        CacheStats stats = cache.getStats();
+        assertEquals(3, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+    }
+    
+    @Test
+    void testVersionChangeInvalidatesEverything() {
+        VersionedLruCache<String, String> cache = new VersionedLruCache<>(10);
+        cache.put("a", 1, "A");
+        
+        assertNull(cache.get("a", 2));
+        // 用旧版本计算的结果不能放入新版本的缓存
+        cache.put("a", 1, "stale");
+        assertNull(cache.get("a", 2));
+        cache.put("a", 2, "A2");
+        assertEquals("A2", cache.get("a", 2));
+        assertEquals(1, cache.getStats().getInvalidations());
+    }
+    
+    @Test
+    void testOlderVersionDoesNotInvalidateNewerEntries() {
+        VersionedLruCache<String, String> cache = new VersionedLruCache<>(10);
+        cache.put("a", 2, "A2");
+        
+        // 仍在读取版本1的调用方晚于版本2访问缓存：不命中、不清空、不放入
+        assertNull(cache.get("a", 1));
+        cache.put("a", 1, "A1");
+        assertEquals("A2", cache.get("a", 2));
+        assertEquals(0, cache.getStats().getInvalidations());
+    }
+    
+    @Test
+    void testConcurrentReadersOfDifferentVersions() throws Exception {
+        VersionedLruCache<Integer, Long> cache = new VersionedLruCache<>(100);
+        AtomicLong currentVersion = new AtomicLong();
+        AtomicBoolean wrongVersion = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    // 先读到版本，再访问缓存，期间版本可能已经更新
+                    long version = i % 100 == 0 ? currentVersion.incrementAndGet() : currentVersion.get();
+                    int key = i % 10;
+                    Long cached = cache.get(key, version);
+                    if (cached == null) {
+                        cache.put(key, version, version);
+                    } else if (cached != version) {
+                        wrongVersion.set(true);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        // 命中的值总是来自调用方读取的版本；读取旧版本的调用方不会让缓存在新旧版本之间反复清空
+        assertFalse(wrongVersion.get());
+        assertTrue(cache.getStats().getInvalidations() <= currentVersion.get());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+import com.example.product.model.ProductStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ColumnarIndex单元测试类
+ */
+class ColumnarIndexTest {
+    
+    @Test
+    void testScanFiltersCategoryAndPriceColumns() {
+        ColumnarIndex index = new ColumnarIndex();
+        long stamp = index.lockForUpdate();
+        index.add(new Product("a", "产品", "描述", 100.0, 1, "手机"));
+        index.add(new Product("b", "产品", "描述", 200.0, 1, "手机"));
+        index.add(new Product("c", "产品", "描述", 150.0, 1, "电脑"));
+        index.add(new Product("d", "产品", "描述", null, 1, "手机"));
+        index.unlock(stamp);
+        
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "d")), new HashSet<>(index.scan("手机", null, null)));
+        // 没有价格的产品不满足价格条件
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), new HashSet<>(index.scan(null, 100.0, 150.0)));
+        assertEquals(Arrays.asList("b"), index.scan("手机", 150.0, null));
+        assertTrue(index.scan("不存在", null, null).isEmpty());
+    }
+    
+    @Test
+    void testUpdateAndRemoveKeepColumnsDense() {
+        ColumnarIndex index = new ColumnarIndex();
+        long stamp = index.lockForUpdate();
+        // 超过初始容量，触发扩容
+        for (int i = 0; i < 3000; i++) {
+            index.add(new Product("P" + i, "产品", "描述", (double) i, 1, "分类" + (i % 3)));
+        }
+        // 删除中间的产品，最后一个产品移到空出的槽位后仍可更新和删除
+        index.remove(new Product("P10", "产品", "描述", 10.0, 1, "分类1"));
+        index.add(new Product("P2999", "产品", "描述", 5.0, 7, "分类0"));
+        index.remove(new Product("P20", "产品", "描述", 20.0, 1, "分类2"));
+        index.unlock(stamp);
+        
+        assertEquals(2998, index.size());
+        assertEquals(Arrays.asList("P2999"), index.scan("分类0", 5.0, 5.0));
+        assertFalse(index.scan(null, null, null).contains("P10"));
+        // 价格0..30的31个产品去掉P10、P20，加上改价后的P2999
+        assertEquals(30, index.scan(null, 0.0, 30.0).size());
+    }
+    
+    @Test
+    void testAggregate() {
+        ColumnarIndex index = new ColumnarIndex();
+        long stamp = index.lockForUpdate();
+        index.add(new Product("a", "产品", "描述", 100.0, 2, "手机"));
+        index.add(new Product("b", "产品", "描述", 300.0, 1, "手机"));
+        index.add(new Product("c", "产品", "描述", null, 5, "手机"));
+        index.add(new Product("d", "产品", "描述", 50.0, 10, "电脑"));
+        index.unlock(stamp);
+        
+        ProductStats stats = index.aggregate("手机", null, null);
+        assertEquals(3, stats.getCount());
+        assertEquals(8, stats.getTotalStock());
+        assertEquals(100.0, stats.getMinPrice());
+        assertEquals(300.0, stats.getMaxPrice());
+        assertEquals(200.0, stats.getAveragePrice());
+        assertEquals(500.0, stats.getInventoryValue());
+        
+        assertEquals(2, index.aggregate(null, 50.0, 100.0).getCount());
+        assertNull(index.aggregate("不存在", null, null).getAveragePrice());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NameIndex单元测试类
+ */
+class NameIndexTest {
+    
+    private static Product product(String id, String name) {
+        return new Product(id, name, "描述", 1.0, 1, "分类");
+    }
+    
+    @Test
+    void testMixedChineseAndLatinNames() {
+        NameIndex index = new NameIndex();
+        index.add(product("1", "OnePlus 相机"));
+        index.add(product("2", "Apple Pro 降噪耳机"));
+        index.add(product("3", "华为 相机 Pro"));
+        
+        assertEquals(new HashSet<>(Arrays.asList("1", "3")), index.candidates(NameIndex.normalize("相机")));
+        assertEquals(new HashSet<>(Arrays.asList("1")), index.candidates(NameIndex.normalize("PLUS 相")));
+        assertEquals(new HashSet<>(Arrays.asList("2", "3")), index.candidates(NameIndex.normalize("pro")));
+        assertEquals(new HashSet<>(Arrays.asList("2")), index.candidates(NameIndex.normalize("耳")));
+        assertTrue(index.candidates(NameIndex.normalize("相册")).isEmpty());
+        assertEquals(1, index.estimate(NameIndex.normalize("降噪")));
+        
+        index.remove(product("1", "OnePlus 相机"));
+        assertEquals(new HashSet<>(Arrays.asList("3")), index.candidates(NameIndex.normalize("相机")));
+        assertTrue(index.candidates(NameIndex.normalize("oneplus")).isEmpty());
+    }
+    
+    @Test
+    void testCandidatesMayNeedVerification() {
+        NameIndex index = new NameIndex();
+        // 包含 "ab" 和 "bc"，但不包含 "abc"
+        index.add(product("1", "ab bc"));
+        index.add(product("2", "abc"));
+        
+        assertEquals(new HashSet<>(Arrays.asList("1", "2")), index.candidates("abc"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PriceIndex单元测试类
+ */
+class PriceIndexTest {
+    
+    @Test
+    void testRangeIsInclusiveAndOrdered() {
+        PriceIndex index = new PriceIndex();
+        index.add(new Product("b", "产品", "描述", 200.0, 1, "分类"));
+        index.add(new Product("a", "产品", "描述", 200.0, 1, "分类"));
+        index.add(new Product("c", "产品", "描述", 100.0, 1, "分类"));
+        index.add(new Product("d", "产品", "描述", 300.0, 1, "分类"));
+        
+        assertEquals(Arrays.asList("c", "a", "b"), index.range(100.0, 200.0));
+        assertEquals(Arrays.asList("a", "b", "d"), index.range(150.0, null));
+        assertEquals(Arrays.asList("c"), index.range(null, 199.99));
+        assertTrue(index.range(201.0, 299.0).isEmpty());
+        
+        index.remove(new Product("a", "产品", "描述", 200.0, 1, "分类"));
+        assertEquals(Arrays.asList("b"), index.range(200.0, 200.0));
+        assertEquals(3, index.size());
+    }
+    
+    @Test
+    void testInvertedRangeIsEmpty() {
+        PriceIndex index = new PriceIndex();
+        // 超过精确计数的上限，估计走直方图
+        for (int i = 0; i < 5000; i++) {
+            index.add(new Product("P" + i, "产品", "描述", (double) i, 1, "分类"));
+        }
+        
+        assertTrue(index.range(100.0, 10.0).isEmpty());
+        assertEquals(0, index.estimate(100.0, 10.0));
+        assertEquals(1, index.range(10.0, 10.0).size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.product.index;
+
+import com.example.product.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryPlanner单元测试类
+ */
+class QueryPlannerTest {
+    
+    private static final int TOTAL = 10000;
+    
+    private final NameIndex nameIndex = new NameIndex();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final PriceIndex priceIndex = new PriceIndex();
+    private final ColumnarIndex columnarIndex = new ColumnarIndex();
+    private final QueryPlanner planner = new QueryPlanner(nameIndex, categoryIndex, priceIndex, () -> TOTAL);
+    
+    @BeforeEach
+    void setUp() {
+        long stamp = columnarIndex.lockForUpdate();
+        for (int i = 0; i < TOTAL; i++) {
+            // 一半是手机；每100个有一个相机；价格0..9999均匀分布
+            String category = i % 2 == 0 ? "手机" : "分类" + (i % 50);
+            String name = i % 100 == 0 ? "OnePlus 相机 " + i : "产品 " + i;
+            Product product = new Product("P" + i, name, "描述", (double) i, 1, category);
+            nameIndex.add(product);
+            categoryIndex.add(product);
+            priceIndex.add(product);
+            columnarIndex.add(product);
+        }
+        columnarIndex.unlock(stamp);
+    }
+    
+    @Test
+    void testUnselectivePredicateFallsBackToScan() {
+        QueryPlan plan = planner.plan(null, "手机", null, null);
+        
+        assertEquals(QueryPlan.Strategy.SCAN, plan.getStrategy());
+        assertEquals(5000L, plan.getEstimates().get(QueryPlan.CATEGORY));
+        assertNull(planner.candidates(plan));
+    }
+    
+    @Test
+    void testMostSelectiveIndexDrives() {
+        QueryPlan plan = planner.plan(null, "手机", 100.0, 199.0);
+        
+        assertEquals(QueryPlan.Strategy.INDEX, plan.getStrategy());
+        assertEquals(QueryPlan.PRICE, plan.getIndexes().get(0));
+        // 直方图估计不小于实际行数，偏大不超过两个桶
+        long estimate = plan.getEstimates().get(QueryPlan.PRICE);
+        assertTrue(estimate >= 100 && estimate <= 100 + 2 * (TOTAL / 256 + 1), "estimate=" + estimate);
+        assertEquals(100, planner.candidates(plan).size());
+    }
+    
+    @Test
+    void testInvertedPriceRangeMatchesNothing() {
+        QueryPlan plan = planner.plan(null, null, 100.0, 10.0);
+        
+        assertEquals(0L, plan.getEstimates().get(QueryPlan.PRICE));
+        assertTrue(planner.candidates(plan).isEmpty());
+    }
+    
+    @Test
+    void testSelectiveIdSetsAreIntersected() {
+        QueryPlan plan = planner.plan("相机", "分类1", null, null);
+        
+        assertEquals(QueryPlan.Strategy.INTERSECT, plan.getStrategy());
+        Collection<String> ids = planner.candidates(plan);
+        // 相机都是偶数编号，分类1都是奇数编号
+        assertTrue(ids.isEmpty());
+        assertTrue(plan.getSummary().startsWith("INTERSECT("));
+    }
+    
+    @Test
+    void testUnselectivePredicateUsesColumnScanWhenEnabled() {
+        QueryPlanner columnar = new QueryPlanner(nameIndex, categoryIndex, priceIndex, columnarIndex, () -> TOTAL);
+        
+        QueryPlan plan = columnar.plan(null, "手机", 1000.0, null);
+        assertEquals(QueryPlan.Strategy.COLUMN_SCAN, plan.getStrategy());
+        // 偶数编号且价格不低于1000
+        assertEquals(4500, columnar.candidates(plan).size());
+        
+        // 选择性高的索引仍然优先，没有分类和价格条件时无法列扫描
+        assertEquals(QueryPlan.Strategy.INDEX, columnar.plan(null, "分类1", null, null).getStrategy());
+        assertEquals(QueryPlan.Strategy.SCAN, columnar.plan("产品", null, null, null).getStrategy());
+    }
+}
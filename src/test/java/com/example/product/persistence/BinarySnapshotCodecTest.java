@@ -0,0 +1,63 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinarySnapshotCodec单元测试类
+ */
+class BinarySnapshotCodecTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testRoundTrip() throws Exception {
+        List<Product> products = Arrays.asList(
+                new Product("1", "OnePlus 相机", "专业级设备", 10997.39, 416, "相机"),
+                new Product("2", "Apple Pro 降噪", null, null, null, "耳机"),
+                new Product("3", "Huawei Watch", "", 0.0, 0, null),
+                new Product("4", "OPPO Air", null, 19097.74, 463, "相机"));
+        products.get(0).setVersion(7L);
+        products.get(0).setBrand("OnePlus");
+        products.get(3).setBrand("OPPO");
+        Path file = tempDir.resolve("products.bin");
+        assertEquals(4, BinarySnapshotCodec.write(file, products));
+        
+        List<Product> loaded = new ArrayList<>();
+        assertEquals(4, BinarySnapshotCodec.read(file, loaded::add));
+        for (int i = 0; i < products.size(); i++) {
+            assertEquals(products.get(i).toString(), loaded.get(i).toString());
+        }
+        // 分类和品牌都是共享字典中的实例
+        assertSame(loaded.get(0).getCategory(), loaded.get(3).getCategory());
+        assertSame(products.get(0).getBrand(), loaded.get(0).getBrand());
+    }
+    
+    @Test
+    void testConvertSampleJson() throws Exception {
+        Path binary = tempDir.resolve("products.bin");
+        Path json = tempDir.resolve("products.json");
+        int count = SnapshotConverter.jsonToBinary(Paths.get("products.json"), binary);
+        assertTrue(count > 0);
+        assertTrue(Files.size(binary) < Files.size(Paths.get("products.json")));
+        assertEquals(count, SnapshotConverter.binaryToJson(binary, json));
+    }
+    
+    @Test
+    void testRejectsCorruptFile() throws Exception {
+        Path file = tempDir.resolve("products.bin");
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThrows(java.io.IOException.class, () -> BinarySnapshotCodec.read(file, product -> { }));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.product.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GroupCommitFlusher单元测试类
+ */
+class GroupCommitFlusherTest {
+    
+    @Test
+    void testConcurrentWritesAreCoalesced() throws Exception {
+        List<Long> written = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger writes = new AtomicInteger();
+        GroupCommitFlusher flusher = new GroupCommitFlusher((records, sync) -> {
+            writes.incrementAndGet();
+            for (JournalRecord record : records) {
+                written.add(record.getSeq());
+            }
+        }, 5, 1000);
+        
+        int writers = 200;
+        AtomicLong seq = new AtomicLong();
+        Object lock = new Object();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    CompletableFuture<Void> future;
+                    synchronized (lock) {
+                        JournalRecord record = JournalRecord.delete("1");
+                        record.setSeq(seq.incrementAndGet());
+                        future = flusher.submit(record, Durability.FLUSH);
+                    }
+                    future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        flusher.close();
+        
+        assertEquals(writers, written.size());
+        assertTrue(writes.get() < writers, "写入次数应少于请求数: " + writes.get());
+        for (int i = 0; i < writers; i++) {
+            assertEquals(i + 1, written.get(i));
+        }
+    }
+    
+    @Test
+    void testSyncRequestedOnlyForFsync() throws Exception {
+        List<Boolean> syncs = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitFlusher flusher = new GroupCommitFlusher((records, sync) -> syncs.add(sync), 0, 1);
+        
+        flusher.submit(JournalRecord.delete("1"), Durability.FLUSH).get();
+        flusher.submit(JournalRecord.delete("2"), Durability.FSYNC).get();
+        flusher.close();
+        
+        assertEquals(2, syncs.size());
+        assertFalse(syncs.get(0));
+        assertTrue(syncs.get(1));
+    }
+    
+    @Test
+    void testCloseDrainsAsyncWrites() {
+        AtomicInteger written = new AtomicInteger();
+        GroupCommitFlusher flusher = new GroupCommitFlusher((records, sync) -> written.addAndGet(records.size()), 5, 10);
+        for (int i = 0; i < 100; i++) {
+            flusher.submit(JournalRecord.delete(String.valueOf(i)), Durability.ASYNC);
+        }
+        flusher.close();
+        assertEquals(100, written.get());
+        assertThrows(IllegalStateException.class, () -> flusher.submit(JournalRecord.delete("x"), Durability.ASYNC));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductJournal单元测试类
+ */
+class ProductJournalTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    
+    private static JournalRecord withSeq(JournalRecord record, long seq) {
+        record.setSeq(seq);
+        return record;
+    }
+    
+    @Test
+    void testAppendAndReplay() throws Exception {
+        Path path = tempDir.resolve("test.journal");
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            journal.append(withSeq(JournalRecord.add(new Product("1", "测试产品", "描述", 100.0, 10, "测试分类")), 1));
+            journal.append(withSeq(JournalRecord.delete("1"), 2));
+        }
+        
+        List<JournalRecord> records = new ArrayList<>();
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            assertEquals(2, journal.replay(0, records::add));
+            assertEquals(2, journal.getLastSeq());
+        }
+        assertEquals(JournalRecord.Op.ADD, records.get(0).getOp());
+        assertEquals("测试产品", records.get(0).getProducts().get(0).getName());
+        assertEquals(JournalRecord.Op.DELETE, records.get(1).getOp());
+        assertEquals("1", records.get(1).getIds().get(0));
+    }
+    
+    @Test
+    void testTornTailIsTruncated() throws Exception {
+        Path path = tempDir.resolve("test.journal");
+        Path segment = tempDir.resolve("test.journal.000001");
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            journal.append(withSeq(JournalRecord.delete("1"), 1));
+        }
+        long validSize = Files.size(segment);
+        // 模拟写入途中崩溃留下的半条记录
+        Files.write(segment, "{\"seq\":2,\"op\":\"DEL".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            assertEquals(1, journal.replay(0, record -> { }));
+            journal.append(withSeq(JournalRecord.delete("2"), 2));
+        }
+        assertTrue(Files.size(segment) > validSize);
+        
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            assertEquals(2, journal.replay(0, record -> { }));
+        }
+    }
+    
+    @Test
+    void testFailedWriteLeavesNoTornRecord() throws Exception {
+        Path path = tempDir.resolve("test.journal");
+        // 0: 正常写入；1: 只写入一半；2: 抛出异常
+        int[] mode = {0};
+        try (ProductJournal journal = new ProductJournal(path, objectMapper) {
+            @Override
+            int write(ByteBuffer buffer, long position) throws IOException {
+                if (mode[0] == 0) {
+                    return super.write(buffer, position);
+                }
+                if (mode[0] == 2) {
+                    mode[0] = 0;
+                    throw new IOException("磁盘已满");
+                }
+                // 第一次只写入一半，继续写剩下的部分时失败
+                mode[0] = 2;
+                ByteBuffer half = buffer.duplicate();
+                half.limit(buffer.position() + buffer.remaining() / 2);
+                int written = super.write(half, position);
+                buffer.position(buffer.position() + written);
+                return written;
+            }
+        }) {
+            journal.append(withSeq(JournalRecord.delete("1"), 1));
+            mode[0] = 1;
+            assertThrows(IOException.class, () -> journal.append(withSeq(JournalRecord.delete("2"), 2)));
+            journal.append(withSeq(JournalRecord.delete("3"), 3));
+        }
+        
+        List<String> ids = new ArrayList<>();
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            assertEquals(2, journal.replay(0, record -> ids.addAll(record.getIds())));
+        }
+        // 失败之后追加的记录没有被截断丢弃
+        assertEquals(Arrays.asList("1", "3"), ids);
+    }
+    
+    @Test
+    void testRotateAndSkipRecordsInSnapshot() throws Exception {
+        Path path = tempDir.resolve("test.journal");
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            journal.append(withSeq(JournalRecord.delete("1"), 1));
+            journal.append(withSeq(JournalRecord.delete("2"), 2));
+            long next = journal.rotate();
+            journal.append(withSeq(JournalRecord.delete("3"), 3));
+            assertEquals(1, journal.getRecordCount());
+            assertTrue(Files.exists(tempDir.resolve("test.journal.000001")));
+            journal.deleteSegmentsBefore(next);
+            assertFalse(Files.exists(tempDir.resolve("test.journal.000001")));
+        }
+        
+        List<String> ids = new ArrayList<>();
+        try (ProductJournal journal = new ProductJournal(path, objectMapper)) {
+            // 快照已包含序号 2 之前的记录
+            assertEquals(1, journal.replay(2, record -> ids.addAll(record.getIds())));
+        }
+        assertEquals("3", ids.get(0));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 启动加载耗时对比：JSON 整体解析 / JSON 流式解析 / JSON 并行解析 / 二进制快照
+ * 不是单元测试，手动运行：
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.example.product.persistence.SnapshotLoadBenchmark -Dexec.args=500000
+ */
+public class SnapshotLoadBenchmark {
+    
+    private static final String[] CATEGORIES = {"手机", "电脑", "平板", "耳机", "相机", "手表", "音箱", "配件"};
+    private static final String[] BRANDS = {"Apple", "Huawei", "OPPO", "OnePlus", "Xiaomi", "Samsung"};
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            products.add(new Product("P" + i, brand + " 产品 " + i, "品牌: " + brand + " 专业级设备",
+                    Math.round(random.nextDouble() * 2000000) / 100.0, random.nextInt(1000),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        }
+        
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path json = dir.resolve("products.json");
+        Path binary = dir.resolve("products.bin");
+        objectMapper.writeValue(json.toFile(), products);
+        BinarySnapshotCodec.write(binary, products);
+        products = null;
+        System.out.printf("产品数: %d, JSON: %.1f MB, 二进制: %.1f MB%n",
+                count, Files.size(json) / 1e6, Files.size(binary) / 1e6);
+        
+        StreamingJsonLoader loader = new StreamingJsonLoader(objectMapper);
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 5; round++) {
+            Map<String, Product> store = new ConcurrentHashMap<>();
+            long start = System.nanoTime();
+            List<Product> loaded = objectMapper.readValue(json.toFile(), new TypeReference<List<Product>>() {});
+            for (Product product : loaded) {
+                store.put(product.getId(), product);
+            }
+            long listNanos = System.nanoTime() - start;
+            loaded = null;
+            
+            Map<String, Product> streamed = new ConcurrentHashMap<>();
+            start = System.nanoTime();
+            loader.load(json, product -> streamed.put(product.getId(), product), 1);
+            long streamingNanos = System.nanoTime() - start;
+            
+            Map<String, Product> parallel = new ConcurrentHashMap<>();
+            start = System.nanoTime();
+            loader.load(json, product -> parallel.put(product.getId(), product), threads);
+            long parallelNanos = System.nanoTime() - start;
+            
+            Map<String, Product> decoded = new ConcurrentHashMap<>();
+            start = System.nanoTime();
+            BinarySnapshotCodec.read(binary, product -> decoded.put(product.getId(), product));
+            long binaryNanos = System.nanoTime() - start;
+            
+            System.out.printf("第%d轮 JSON整体: %d ms, JSON流式: %d ms, JSON并行(%d线程): %d ms, 二进制: %d ms%n",
+                    round + 1, listNanos / 1000000, streamingNanos / 1000000, threads, parallelNanos / 1000000,
+                    binaryNanos / 1000000);
+        }
+        
+        Files.delete(json);
+        Files.delete(binary);
+        Files.delete(dir);
+    }
+}
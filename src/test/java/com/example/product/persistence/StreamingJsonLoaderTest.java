@@ -0,0 +1,62 @@
+package com.example.product.persistence;
+
+import com.example.product.model.Product;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamingJsonLoader单元测试类
+ */
+class StreamingJsonLoaderTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    
+    @Test
+    void testSerialLoadOfSampleFile() throws Exception {
+        List<Product> products = new ArrayList<>();
+        long count = new StreamingJsonLoader(objectMapper).load(Paths.get("products.json"), products::add, 1);
+        assertEquals(products.size(), count);
+        assertTrue(count > 0);
+        assertNotNull(products.get(0).getId());
+    }
+    
+    @Test
+    void testParallelLoadMatchesSerial() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            products.add(new Product("P" + i, "产品 " + i, "描述", i * 1.5, i, "分类" + (i % 7)));
+        }
+        Path file = tempDir.resolve("products.json");
+        objectMapper.writeValue(file.toFile(), products);
+        
+        Map<String, Product> loaded = new ConcurrentHashMap<>();
+        long count = new StreamingJsonLoader(objectMapper).load(file, product -> loaded.put(product.getId(), product), 4);
+        assertEquals(5000, count);
+        assertEquals(5000, loaded.size());
+        assertEquals(products.get(4321).toString(), loaded.get("P4321").toString());
+    }
+    
+    @Test
+    void testRejectsNonArray() throws Exception {
+        Path file = tempDir.resolve("products.json");
+        Files.write(file, "{\"id\":\"1\"}".getBytes("UTF-8"));
+        assertThrows(IOException.class, () -> new StreamingJsonLoader(objectMapper).load(file, product -> { }, 1));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.product.service;
+
+import com.example.product.index.QueryPlan;
+import com.example.product.model.Product;
+import com.example.product.persistence.Durability;
+import com.example.product.persistence.PersistenceOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 扫描大量产品的查询和统计耗时对比：按行访问产品对象 / 列式存储
+ * 不是单元测试，手动运行（堆需容纳两份数据，如 MAVEN_OPTS=-Xmx4g）：
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.example.product.service.ColumnarScanBenchmark -Dexec.args=1000000
+ */
+public class ColumnarScanBenchmark {
+    
+    private static final String[] CATEGORIES = {"手机", "电脑", "平板", "耳机", "相机", "手表", "音箱", "配件"};
+    
+    private static final int ROUNDS = 20;
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product("P" + i, "产品 " + i, "描述", Math.round(random.nextDouble() * 2000000) / 100.0,
+                    random.nextInt(1000), CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        }
+        
+        Path dir = Files.createTempDirectory("columnar-bench");
+        ProductService rows = create(dir, "rows", false, products);
+        ProductService columns = create(dir, "columns", true, products);
+        products = null;
+        System.out.printf("产品数: %,d%n", count);
+        
+        // 价格条件选中约四分之一的产品，按行时只能沿价格索引逐个取出
+        run("查询 价格 >= 15000", rows, columns, service -> () -> {
+            QueryPlan plan = service.planSearch(null, null, 15000.0, null);
+            return service.searchProducts(plan).size() + " 行 " + plan.getSummary();
+        });
+        run("查询 手机 且价格 >= 1000", rows, columns, service -> () -> {
+            QueryPlan plan = service.planSearch(null, "手机", 1000.0, null);
+            return service.searchProducts(plan).size() + " 行 " + plan.getSummary();
+        });
+        run("统计 全部产品", rows, columns, service -> () -> service.getProductStats(null, null, null).getCount() + " 个");
+        run("统计 手机 价格 100~5000", rows, columns,
+                service -> () -> service.getProductStats("手机", 100.0, 5000.0).getCount() + " 个");
+        
+        rows.close();
+        columns.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+    
+    private static ProductService create(Path dir, String name, boolean columnar, List<Product> products) {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setDataFile(dir.resolve(name + ".json").toString());
+        options.setDefaultDurability(Durability.ASYNC);
+        // 关闭查询缓存，每次都实际扫描
+        ProductService service = new ProductService(options, 0, columnar);
+        for (int from = 0; from < products.size(); from += 10000) {
+            List<Product> chunk = new ArrayList<>();
+            for (Product product : products.subList(from, Math.min(from + 10000, products.size()))) {
+                chunk.add(new Product(product));
+            }
+            service.addProducts(chunk, false);
+        }
+        return service;
+    }
+    
+    private interface Query {
+        Supplier<String> on(ProductService service);
+    }
+    
+    private static void run(String title, ProductService rows, ProductService columns, Query query) {
+        System.out.println(title);
+        report("  按行", query.on(rows));
+        report("  按列", query.on(columns));
+    }
+    
+    private static void report(String label, Supplier<String> query) {
+        String result = null;
+        // 预热
+        for (int i = 0; i < ROUNDS; i++) {
+            result = query.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            result = query.get();
+        }
+        System.out.printf("%s: %.1f ms/次，%s%n", label, (System.nanoTime() - start) / 1e6 / ROUNDS, result);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.product.service;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.persistence.PersistenceOptions;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExcelImportService单元测试类
+ */
+class ExcelImportServiceTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ProductService productService;
+    
+    @BeforeEach
+    void setUp() {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setDataFile(tempDir.resolve("products.json").toString());
+        productService = new ProductService(options);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        productService.close();
+    }
+    
+    /**
+     * 生成导入用的Excel文件，列顺序为: ID, 名称, 品牌, 分类, 价格, 库存, 描述
+     */
+    static Path createWorkbook(Path file, int rows) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("产品数据");
+            String[] headers = {"ID", "名称", "品牌", "分类", "价格", "库存", "描述"};
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                header.createCell(i).setCellValue(headers[i]);
+            }
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("P" + i);
+                row.createCell(1).setCellValue("OnePlus 相机 " + i);
+                row.createCell(2).setCellValue("OnePlus");
+                row.createCell(3).setCellValue("相机");
+                row.createCell(4).setCellValue(100.5 + i);
+                row.createCell(5).setCellValue(i);
+                row.createCell(6).setCellValue("专业级设备");
+            }
+            try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+                workbook.write(out);
+            }
+        }
+        return file;
+    }
+    
+    @Test
+    void testImportInChunks() throws Exception {
+        Path file = createWorkbook(tempDir.resolve("import.xlsx"), 25);
+        ExcelImportService importService = new ExcelImportService(productService, 10, 3);
+        
+        ExcelImportService.ImportResult result = importService.importProductsFromExcel(file.toString());
+        
+        assertNull(result.getErrorMessage());
+        assertEquals(25, result.getTotalRecords());
+        assertEquals(25, result.getSuccessCount());
+        assertEquals(25, productService.getAllProducts().size());
+        assertEquals("OnePlus", productService.getProductById("P3").getBrand());
+        assertEquals("专业级设备", productService.getProductById("P3").getDescription());
+        // 每行的品牌和分类都是共享字典中的同一个实例
+        assertSame(productService.getProductById("P3").getBrand(), productService.getProductById("P4").getBrand());
+        assertSame(productService.getProductById("P3").getCategory(), productService.getProductById("P4").getCategory());
+        assertEquals(103.5, productService.getProductById("P3").getPrice());
+        assertEquals(3, productService.getProductById("P3").getStock());
+    }
+    
+    @Test
+    void testImportReportsDuplicatesWithRowNumbers() throws Exception {
+        Path file = createWorkbook(tempDir.resolve("import.xlsx"), 5);
+        ExcelImportService importService = new ExcelImportService(productService, 2, 2);
+        importService.importProductsFromExcel(file.toString());
+        
+        ExcelImportService.ImportResult result = importService.importProductsFromExcel(file.toString());
+        
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(5, result.getFailureCount());
+        assertTrue(result.getFailures().startsWith("第2行产品导入失败: 产品ID已存在: P1"));
+    }
+    
+    @Test
+    void testImportFromCsv() {
+        String csv = "ID,名称,品牌,分类,价格,库存,描述\n"
+                + "C1,耳机,Sony,音频,99.5,10,降噪\n"
+                + "C2,,Sony,音频,10,1,缺少名称\n"
+                + "C3,音箱,,音频,199,3,\n";
+        ExcelImportService importService = new ExcelImportService(productService, 2, 2);
+        
+        ExcelImportService.ImportResult result = importService.importProductsFromCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        
+        assertNull(result.getErrorMessage());
+        assertEquals(3, result.getTotalRecords());
+        assertEquals(2, result.getSuccessCount());
+        assertTrue(result.getFailures().startsWith("第3行"));
+        assertEquals("Sony", productService.getProductById("C1").getBrand());
+        assertEquals("降噪", productService.getProductById("C1").getDescription());
+        assertEquals(199.0, productService.getProductById("C3").getPrice());
+    }
+    
+    @Test
+    void testPipelineKeepsRowOrderAcrossValidators() throws Exception {
+        List<ExcelProduct> rows = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            // 每7行一条无效数据，每500行重复一次第一行的ID
+            String id = i % 500 == 0 ? "P1" : "P" + i;
+            ExcelProduct row = new ExcelProduct(id, i % 7 == 0 ? "" : "产品" + i, "描述", 1.0 * i, i, "分类");
+            row.setRowNumber(i + 1);
+            rows.add(row);
+        }
+        ExcelImportService.ImportResult result = new ExcelImportService.ImportResult();
+        
+        new ImportPipeline(productService, 100, 4).run(consumer -> {
+            rows.forEach(consumer);
+            return rows.size();
+        }, result);
+        
+        int invalid = 2000 / 7;
+        int duplicates = 4; // 第500、1000、1500、2000条
+        assertEquals(2000, result.getTotalRecords());
+        assertEquals(2000 - invalid - duplicates, result.getSuccessCount());
+        assertEquals("产品1", productService.getProductById("P1").getName());
+        
+        String[] failures = result.getFailures().split("\n");
+        assertEquals(invalid + duplicates, failures.length);
+        assertTrue(failures[0].startsWith("第8行数据验证失败"));
+        int previous = 0;
+        for (String failure : failures) {
+            int rowNumber = Integer.parseInt(failure.substring(1, failure.indexOf('行')));
+            assertTrue(rowNumber > previous);
+            previous = rowNumber;
+        }
+    }
+    
+    @Test
+    void testPartialBatchCommittedWhenReadFails() {
+        ExcelImportService.ImportResult result = new ExcelImportService.ImportResult();
+        
+        // 未满一批时读取出错，已读取的行仍被提交
+        IOException error = assertThrows(IOException.class, () -> new ImportPipeline(productService, 100, 2).run(consumer -> {
+            for (int i = 1; i <= 10; i++) {
+                ExcelProduct row = new ExcelProduct("R" + i, "产品" + i, "描述", 1.0 * i, i, "分类");
+                row.setRowNumber(i + 1);
+                consumer.accept(row);
+            }
+            throw new IOException("文件已损坏");
+        }, result));
+        
+        assertEquals("文件已损坏", error.getMessage());
+        assertEquals(10, result.getSuccessCount());
+        assertNotNull(productService.getProductById("R10"));
+    }
+    
+    @Test
+    void testValidatorFailureAbortsInsteadOfHanging() {
+        List<ExcelProduct> rows = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            ExcelProduct row = new ExcelProduct("V" + i, "产品" + i, "描述", 1.0 * i, i, "分类");
+            row.setRowNumber(i + 1);
+            rows.add(row);
+        }
+        // 验证线程在这一行抛出Error后退出，不再转发结束标记
+        ExcelProduct broken = new ExcelProduct("V0", "产品", "描述", 1.0, 1, "分类") {
+            @Override
+            public String getName() {
+                throw new AssertionError("验证线程异常");
+            }
+        };
+        rows.add(300, broken);
+        ExcelImportService.ImportResult result = new ExcelImportService.ImportResult();
+        
+        IllegalStateException error = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IllegalStateException.class, () -> new ImportPipeline(productService, 100, 1).run(consumer -> {
+                    rows.forEach(consumer);
+                    return rows.size();
+                }, result)));
+        
+        assertTrue(error.getMessage().contains("验证线程异常"));
+        assertTrue(result.getSuccessCount() < rows.size());
+    }
+}
@@ -1,8 +1,22 @@
 package com.example.product.service;
 
+import com.example.product.index.QueryPlan;
+import com.example.product.index.SortKey;
 import com.example.product.model.Product;
+import com.example.product.model.ProductPage;
+import com.example.product.model.ProductStats;
+import com.example.product.persistence.PersistenceException;
+import com.example.product.persistence.PersistenceMode;
+import com.example.product.persistence.PersistenceOptions;
+import com.example.product.store.StoreSnapshot;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -11,11 +25,23 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 class ProductServiceTest {
     
+    @TempDir
+    Path tempDir;
+    
+    private PersistenceOptions options;
+    
     private ProductService productService;
     
     @BeforeEach
     void setUp() {
-        productService = new ProductService();
+        options = new PersistenceOptions();
+        options.setDataFile(tempDir.resolve("products.json").toString());
+        productService = new ProductService(options);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        productService.close();
     }
     
     @Test
@@ -95,6 +121,276 @@ class ProductServiceTest {
         
         results = productService.searchProducts(null, null, 150.0, 250.0);
         assertEquals(1, results.size());
+        
+        QueryPlan plan = productService.planSearch("苹果", null, null, null);
+        assertEquals(2, productService.streamProducts(plan).count());
+    }
+    
+    @Test
+    void testCategoryIndexFollowsWrites() {
+        productService.addProduct(new Product("1", "苹果手机", "描述", 100.0, 10, "手机"));
+        productService.addProduct(new Product("2", "华为手机", "描述", 200.0, 20, "手机"));
+        productService.addProducts(Arrays.asList(
+                new Product("3", "苹果电脑", "描述", 300.0, 30, "电脑"),
+                new Product("4", "华为平板", "描述", 150.0, 40, "平板")), false);
+        
+        productService.updateProduct(new Product("2", "华为电脑", "描述", 200.0, 20, "电脑"));
+        productService.deleteProduct("3");
+        productService.batchUpdatePrice(Arrays.asList("1", "2"), 10.0);
+        
+        List<Product> results = productService.searchProducts(null, "手机", null, null);
+        assertEquals(1, results.size());
+        assertEquals("1", results.get(0).getId());
+        results = productService.searchProducts(null, "电脑", null, null);
+        assertEquals(1, results.size());
+        assertEquals("2", results.get(0).getId());
+        assertEquals(1, productService.searchProducts("华为", "平板", 100.0, 200.0).size());
+        assertTrue(productService.searchProducts(null, "不存在", null, null).isEmpty());
+        
+        // 重启后索引由加载的数据重建
+        productService.close();
+        productService = new ProductService(options);
+        assertEquals("2", productService.searchProducts(null, "电脑", null, null).get(0).getId());
+    }
+    
+    @Test
+    void testPriceRangeFollowsPriceUpdates() {
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, 10, "分类"));
+        productService.addProduct(new Product("2", "产品2", "描述", 200.0, 10, "分类"));
+        productService.addProduct(new Product("3", "产品3", "描述", 300.0, 10, "分类"));
+        
+        productService.batchUpdatePrice(Arrays.asList("1"), 150.0);
+        productService.batchUpdatePriceByPercentage(Arrays.asList("3"), -50.0);
+        productService.updateProduct(new Product("2", "产品2", "描述", 500.0, 10, "分类"));
+        
+        List<Product> results = productService.searchProducts(null, null, 150.0, 250.0);
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(product -> product.getId().equals("1") || product.getId().equals("3")));
+        assertEquals("2", productService.searchProducts(null, null, 400.0, null).get(0).getId());
+    }
+    
+    @Test
+    void testSearchCacheInvalidatedByWrites() {
+        productService.addProduct(new Product("1", "苹果手机", "描述", 100.0, 10, "手机"));
+        
+        List<Product> first = productService.searchProducts("苹果", null, null, null);
+        QueryPlan plan = productService.planSearch("苹果", null, null, null);
+        List<Product> second = productService.searchProducts(plan);
+        assertSame(first, second);
+        assertTrue(plan.isCached());
+        assertEquals(1, productService.getSearchCacheStats().getHits());
+        
+        productService.addProduct(new Product("2", "苹果电脑", "描述", 300.0, 30, "电脑"));
+        assertEquals(2, productService.searchProducts("苹果", null, null, null).size());
+        productService.batchUpdatePrice(Arrays.asList("2"), -250.0);
+        assertEquals(2, productService.searchProducts(null, null, 0.0, 100.0).size());
+        assertEquals(1, productService.getSearchCacheStats().getHits());
+    }
+    
+    @Test
+    void testProductVersions() {
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, 10, "分类"));
+        productService.addProduct(new Product("2", "产品2", "描述", 200.0, 10, "分类"));
+        long version1 = productService.getProductVersion("1");
+        long version2 = productService.getProductVersion("2");
+        assertTrue(version2 > version1);
+        assertEquals(version2, productService.getStoreVersion());
+        
+        productService.batchUpdateStock(Arrays.asList("1"), 5);
+        assertTrue(productService.getProductVersion("1") > version2);
+        assertEquals(version2, productService.getProductVersion("2"));
+        assertEquals(-1, productService.getProductVersion("3"));
+        
+        // 重启后版本号不变或变大，不会回到旧值
+        long storeVersion = productService.getStoreVersion();
+        productService.checkpoint();
+        productService.close();
+        productService = new ProductService(options);
+        assertEquals(storeVersion, productService.getStoreVersion());
+        assertTrue(productService.getProductVersion("2") >= version2);
+        productService.deleteProduct("2");
+        assertEquals(-1, productService.getProductVersion("2"));
+    }
+    
+    @Test
+    void testConditionalUpdate() {
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, 10, "分类"));
+        long version = productService.getProductById("1").getVersion();
+        assertEquals(version, productService.getProductVersion("1"));
+        
+        // 两个客户端基于同一版本修改，后提交的失败且不产生修改
+        ProductService.UpdateResult first = productService.updateProduct(
+                new Product("1", "产品1", "描述", 110.0, 10, "分类"), version, null);
+        assertTrue(first.isUpdated());
+        assertTrue(first.getProduct().getVersion() > version);
+        ProductService.UpdateResult second = productService.updateProduct(
+                new Product("1", "产品1", "描述", 120.0, 10, "分类"), version, null);
+        assertEquals(ProductService.UpdateResult.Status.VERSION_CONFLICT, second.getStatus());
+        assertEquals(first.getProduct().getVersion(), second.getProduct().getVersion());
+        assertEquals(110.0, productService.getProductById("1").getPrice());
+        
+        assertEquals(ProductService.UpdateResult.Status.NOT_FOUND, productService.updateProduct(
+                new Product("2", "产品2", "描述", 100.0, 10, "分类"), null, null).getStatus());
+    }
+    
+    @Test
+    void testPatchProduct() {
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, 10, "分类"));
+        long version = productService.getProductVersion("1");
+        
+        java.util.Map<String, Object> fields = new java.util.HashMap<>();
+        fields.put("price", 88.5);
+        fields.put("version", 12345);
+        ProductService.UpdateResult result = productService.patchProduct("1", fields, version, null);
+        assertTrue(result.isUpdated());
+        Product patched = productService.getProductById("1");
+        assertEquals(88.5, patched.getPrice());
+        assertEquals("产品1", patched.getName());
+        assertEquals(10, patched.getStock());
+        
+        assertEquals(ProductService.UpdateResult.Status.VERSION_CONFLICT,
+                productService.patchProduct("1", fields, version, null).getStatus());
+        fields.clear();
+        fields.put("stock", -1);
+        assertEquals(ProductService.UpdateResult.Status.INVALID,
+                productService.patchProduct("1", fields, null, null).getStatus());
+        fields.clear();
+        fields.put("colour", "红色");
+        assertEquals(ProductService.UpdateResult.Status.INVALID,
+                productService.patchProduct("1", fields, null, null).getStatus());
+        assertEquals(88.5, productService.getProductById("1").getPrice());
+        assertEquals(result.getProduct().getVersion(), productService.getProductById("1").getVersion());
+    }
+    
+    @Test
+    void testStockReservation() {
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, 10, "分类"));
+        
+        assertTrue(productService.reserveStock("1", 4));
+        assertFalse(productService.reserveStock("1", 7));
+        assertEquals(6, productService.getAvailableStock("1"));
+        assertEquals(4, productService.getReservedStock("1"));
+        // 预占不修改库存
+        assertEquals(10, productService.getProductById("1").getStock());
+        
+        assertTrue(productService.commitReservedStock("1", 3));
+        assertEquals(7, productService.getProductById("1").getStock());
+        assertTrue(productService.releaseStock("1", 1));
+        assertFalse(productService.releaseStock("1", 1));
+        assertEquals(7, productService.getAvailableStock("1"));
+        
+        // 管理员修改库存时可用库存随之变化
+        assertTrue(productService.reserveStock("1", 2));
+        productService.batchUpdateStock(Arrays.asList("1"), 20);
+        assertEquals(18, productService.getAvailableStock("1"));
+        assertTrue(productService.decrementStock("1", 18));
+        assertFalse(productService.decrementStock("1", 1));
+        assertEquals(2, productService.getProductById("1").getStock());
+        
+        assertFalse(productService.reserveStock("2", 1));
+        assertEquals(-1, productService.getAvailableStock("2"));
+        assertThrows(IllegalArgumentException.class, () -> productService.reserveStock("1", 0));
+    }
+    
+    @Test
+    void testBatchReservationIsAllOrNothing() {
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, 5, "分类"));
+        productService.addProduct(new Product("2", "产品2", "描述", 100.0, 1, "分类"));
+        
+        java.util.Map<String, Integer> order = new java.util.HashMap<>();
+        order.put("1", 3);
+        order.put("2", 2);
+        ProductService.ReservationResult result = productService.reserveStock(order);
+        assertFalse(result.isReserved());
+        assertEquals(Arrays.asList("2"), result.getFailedIds());
+        assertEquals(5, productService.getAvailableStock("1"));
+        
+        order.put("2", 1);
+        result = productService.reserveStock(order);
+        assertTrue(result.isReserved());
+        assertEquals(2, result.getAvailable().get("1"));
+        assertEquals(0, result.getAvailable().get("2"));
+        assertTrue(productService.releaseStock(order).isEmpty());
+        assertEquals(5, productService.getAvailableStock("1"));
+        
+        // 数量无效时整批拒绝，不释放任何产品
+        productService.reserveStock(order);
+        java.util.Map<String, Integer> release = new java.util.TreeMap<>();
+        release.put("1", 3);
+        release.put("2", 0);
+        assertThrows(IllegalArgumentException.class, () -> productService.releaseStock(release));
+        assertEquals(2, productService.getAvailableStock("1"));
+    }
+    
+    @Test
+    void testConcurrentDecrementsNeverOversell() throws Exception {
+        int stock = 500;
+        productService.addProduct(new Product("1", "产品1", "描述", 100.0, stock, "分类"));
+        
+        int threads = 16;
+        java.util.concurrent.atomic.AtomicInteger sold = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    if (productService.decrementStock("1", 1)) {
+                        sold.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (java.util.concurrent.Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        assertEquals(stock, sold.get());
+        assertEquals(0, productService.getProductById("1").getStock());
+        assertEquals(0, productService.getAvailableStock("1"));
+        assertEquals(0, productService.getReservedStock("1"));
+    }
+    
+    @Test
+    void testKeysetPagination() {
+        List<Product> products = new java.util.ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // 价格有重复，同价按ID排序
+            products.add(new Product(String.format("P%02d", i), "产品" + i, "描述", (double) (i % 5), 1, i % 2 == 0 ? "偶数" : "奇数"));
+        }
+        productService.addProducts(products, false);
+        
+        List<String> ids = new java.util.ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ProductPage page = productService.listProducts(10, cursor, SortKey.ID, false);
+            page.getItems().forEach(product -> ids.add(product.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+            if (pages == 1) {
+                // 翻页期间新增的、排在游标之前的产品不影响后续页
+                productService.addProduct(new Product("P00a", "新产品", "描述", 1.0, 1, "偶数"));
+            }
+        } while (cursor != null);
+        assertEquals(3, pages);
+        assertEquals(25, ids.size());
+        assertEquals("P00", ids.get(0));
+        assertEquals("P24", ids.get(24));
+        
+        ProductPage byPrice = productService.listProducts(6, null, SortKey.PRICE, true);
+        assertEquals(Arrays.asList("P24", "P19", "P14", "P09", "P04", "P23"),
+                byPrice.getItems().stream().map(Product::getId).collect(java.util.stream.Collectors.toList()));
+        byPrice = productService.listProducts(6, byPrice.getNextCursor(), SortKey.PRICE, true);
+        assertEquals("P18", byPrice.getItems().get(0).getId());
+        
+        QueryPlan plan = productService.planSearch(null, "奇数", 1.0, 3.0);
+        ProductPage odd = productService.searchProducts(plan, 100, null, SortKey.PRICE, false);
+        assertNull(odd.getNextCursor());
+        assertEquals(8, odd.getItems().size());
+        assertEquals("P01", odd.getItems().get(0).getId());
+        
+        assertThrows(IllegalArgumentException.class, () -> productService.listProducts(10, "!!", SortKey.PRICE, false));
     }
     
     @Test
@@ -105,7 +401,7 @@ class ProductServiceTest {
         productService.addProduct(product2);
         
         new java.util.ArrayList<String>(java.util.Arrays.asList("1", "2"));
-        int count = productService.batchUpdatePrice(java.util.Arrays.asList("1", "2"), 50.0);
+        int count = productService.batchUpdatePrice(java.util.Arrays.asList("1", "2"), 50.0).getUpdatedCount();
         assertEquals(2, count);
         
         Product updatedProduct1 = productService.getProductById("1");
@@ -121,7 +417,7 @@ class ProductServiceTest {
         productService.addProduct(product1);
         productService.addProduct(product2);
         
-        int count = productService.batchUpdateStock(java.util.Arrays.asList("1", "2"), 50);
+        int count = productService.batchUpdateStock(java.util.Arrays.asList("1", "2"), 50).getUpdatedCount();
         assertEquals(2, count);
         
         Product updatedProduct1 = productService.getProductById("1");
@@ -129,4 +425,294 @@ class ProductServiceTest {
         assertEquals(50, updatedProduct1.getStock());
         assertEquals(50, updatedProduct2.getStock());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testBatchUpdateResult() {
+        productService.addProduct(new Product("1", "测试产品1", "描述", 100.0, 10, "测试分类"));
+        productService.addProduct(new Product("2", "测试产品2", "描述", 200.0, 20, "测试分类"));
+        
+        ProductService.BatchUpdateResult result = productService.batchUpdatePriceByPercentage(
+                Arrays.asList("1", "3", "2", "1"), 10.0);
+        assertEquals(Arrays.asList("1", "2"), result.getUpdatedIds());
+        assertEquals(Arrays.asList("3"), result.getNotFoundIds());
+        assertEquals(productService.getStoreVersion(), result.getStoreVersion());
+        // 同一ID出现两次时依次修改两次
+        assertEquals(121.0, productService.getProductById("1").getPrice(), 1e-9);
+        assertEquals(220.0, productService.getProductById("2").getPrice(), 1e-9);
+    }
+    
+    @Test
+    void testConcurrentOverlappingBatchesDoNotLoseUpdates() throws Exception {
+        int productCount = BatchUpdateEngine.SPLIT_THRESHOLD * 2 + 1;
+        List<Product> products = new java.util.ArrayList<>();
+        List<String> ids = new java.util.ArrayList<>();
+        for (int i = 0; i < productCount; i++) {
+            products.add(new Product(String.valueOf(i), "产品" + i, "描述", 100.0, 10, "分类"));
+            ids.add(String.valueOf(i));
+        }
+        productService.addProducts(products, false);
+        
+        int threads = 4;
+        int rounds = 5;
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    productService.batchUpdatePrice(ids, 1.0);
+                }
+            }));
+        }
+        for (java.util.concurrent.Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        for (String id : Arrays.asList("0", "1", String.valueOf(productCount - 1))) {
+            assertEquals(100.0 + threads * rounds, productService.getProductById(id).getPrice(), 1e-9);
+        }
+    }
+    
+    @Test
+    void testSnapshotUnaffectedByBatchUpdate() {
+        productService.addProduct(new Product("1", "测试产品1", "描述", 100.0, 10, "测试分类"));
+        productService.addProduct(new Product("2", "测试产品2", "描述", 200.0, 20, "测试分类"));
+        Product before = productService.getProductById("1");
+        
+        try (StoreSnapshot snapshot = productService.snapshot()) {
+            productService.batchUpdatePrice(Arrays.asList("1", "2", "1"), 10.0);
+            productService.deleteProduct("2");
+            
+            assertEquals(2, snapshot.size());
+            for (Product product : snapshot) {
+                assertEquals(product.getId().equals("1") ? 100.0 : 200.0, product.getPrice());
+            }
+        }
+        // 已取出的产品是不可修改的版本，不会被之后的修改改变
+        assertEquals(100.0, before.getPrice());
+        assertEquals(120.0, productService.getProductById("1").getPrice());
+        assertNull(productService.getProductById("2"));
+    }
+    
+    @Test
+    void testAddProductsBatch() {
+        productService.addProduct(new Product("1", "已存在产品", "描述", 100.0, 10, "测试分类"));
+        long batchesBefore = productService.getFlushedBatchCount();
+        
+        List<Product> batch = Arrays.asList(
+                new Product("2", "测试产品2", "描述", 200.0, 20, "测试分类"),
+                new Product("3", "", "描述", 300.0, 30, "测试分类"),
+                new Product("1", "重复产品", "描述", 100.0, 10, "测试分类"),
+                new Product("4", "测试产品4", "描述", 400.0, 40, "测试分类"),
+                new Product("2", "批次内重复", "描述", 200.0, 20, "测试分类"));
+        ProductService.BatchResult result = productService.addProducts(batch, false);
+        
+        assertEquals(2, result.getAppliedCount());
+        assertEquals(Arrays.asList(1, 2, 4), new java.util.ArrayList<>(result.getFailures().keySet()));
+        assertEquals("已存在产品", productService.getProductById("1").getName());
+        assertEquals("测试产品2", productService.getProductById("2").getName());
+        assertEquals(3, productService.getAllProducts().size());
+        // 整批只写入一次
+        assertEquals(batchesBefore + 1, productService.getFlushedBatchCount());
+        
+        result = productService.addProducts(batch, true);
+        assertEquals(3, result.getAppliedCount());
+        assertEquals("重复产品", productService.getProductById("1").getName());
+        assertEquals("批次内重复", productService.getProductById("2").getName());
+    }
+    
+    @Test
+    void testJournalReplayAfterRestart() throws Exception {
+        productService.addProduct(new Product("1", "测试产品1", "测试产品描述1", 100.0, 10, "测试分类"));
+        productService.addProduct(new Product("2", "测试产品2", "测试产品描述2", 200.0, 20, "测试分类"));
+        productService.updateProduct(new Product("1", "更新后的产品", "测试产品描述1", 120.0, 10, "测试分类"));
+        productService.batchUpdateStock(Arrays.asList("1", "2"), 5);
+        productService.deleteProduct("2");
+        productService.close();
+        
+        // 日志模式下修改不会重写快照
+        assertFalse(Files.exists(tempDir.resolve("products.json")));
+        
+        productService = new ProductService(options);
+        assertEquals(1, productService.getAllProducts().size());
+        Product restored = productService.getProductById("1");
+        assertEquals("更新后的产品", restored.getName());
+        assertEquals(120.0, restored.getPrice());
+        assertEquals(5, restored.getStock());
+    }
+    
+    @Test
+    void testCheckpointCompactsJournal() throws Exception {
+        productService.close();
+        options.setCheckpointThreshold(3);
+        productService = new ProductService(options);
+        
+        for (int i = 1; i <= 4; i++) {
+            productService.addProduct(new Product(String.valueOf(i), "测试产品" + i, "描述", 10.0 * i, i, "测试分类"));
+        }
+        productService.close();
+        
+        // 压缩后只剩下当前日志段
+        assertTrue(Files.exists(tempDir.resolve("products.json")));
+        assertTrue(Files.exists(tempDir.resolve("products.json.meta")));
+        try (java.util.stream.Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.filter(path -> path.getFileName().toString().startsWith("products.json.journal.")).count());
+        }
+        
+        productService = new ProductService(options);
+        assertEquals(4, productService.getAllProducts().size());
+        assertEquals(4, productService.getStoreVersion());
+    }
+    
+    @Test
+    void testRestartAfterCrashDuringSnapshotWrite() throws Exception {
+        productService.addProduct(new Product("1", "测试产品", "测试产品描述", 100.0, 10, "测试分类"));
+        productService.checkpoint();
+        productService.addProduct(new Product("2", "测试产品2", "测试产品描述2", 200.0, 20, "测试分类"));
+        productService.close();
+        
+        // 模拟写快照途中崩溃：临时文件只写了一半，正式快照未被替换
+        Files.write(tempDir.resolve("products.json.tmp"), "[{\"id\":\"3\",\"na".getBytes("UTF-8"));
+        
+        productService = new ProductService(options);
+        assertEquals(2, productService.getAllProducts().size());
+        assertFalse(Files.exists(tempDir.resolve("products.json.tmp")));
+    }
+    
+    @Test
+    void testCorruptSnapshotFailsFast() throws Exception {
+        productService.close();
+        Files.write(tempDir.resolve("products.json"), "[{\"id\":\"1\",\"na".getBytes("UTF-8"));
+        
+        assertThrows(IllegalStateException.class, () -> new ProductService(options));
+        productService = new ProductService(optionsFor("other.json"));
+    }
+    
+    private PersistenceOptions optionsFor(String dataFile) {
+        PersistenceOptions other = new PersistenceOptions();
+        other.setDataFile(tempDir.resolve(dataFile).toString());
+        return other;
+    }
+    
+    @Test
+    void testLegacyBrandIsMovedOutOfDescription() throws Exception {
+        productService.close();
+        Files.write(tempDir.resolve("legacy.json"), ("["
+                + "{\"id\":\"1\",\"name\":\"Huawei Watch\",\"description\":\"品牌: Huawei 专业级设备\",\"price\":1.0,\"stock\":1,\"category\":\"手表\"},"
+                + "{\"id\":\"2\",\"name\":\"Huawei 平板\",\"description\":\"品牌: Huawei\",\"price\":2.0,\"stock\":1,\"category\":\"平板\"},"
+                + "{\"id\":\"3\",\"name\":\"音箱\",\"description\":\"普通描述\",\"price\":3.0,\"stock\":1,\"category\":\"手表\"}"
+                + "]").getBytes("UTF-8"));
+        productService = new ProductService(optionsFor("legacy.json"));
+        
+        Product watch = productService.getProductById("1");
+        assertEquals("Huawei", watch.getBrand());
+        assertEquals("专业级设备", watch.getDescription());
+        assertNull(productService.getProductById("2").getDescription());
+        assertNull(productService.getProductById("3").getBrand());
+        assertEquals("普通描述", productService.getProductById("3").getDescription());
+        // 加载时分类和品牌经过共享字典
+        assertSame(watch.getBrand(), productService.getProductById("2").getBrand());
+        assertSame(watch.getCategory(), productService.getProductById("3").getCategory());
+    }
+    
+    @Test
+    void testLegacyBrandSuffixAndMultiWordBrands() throws Exception {
+        productService.close();
+        Files.write(tempDir.resolve("legacy.json"), ("["
+                // 更早版本的格式：品牌接在描述后面，一直到末尾
+                + "{\"id\":\"1\",\"name\":\"跑鞋\",\"description\":\"轻量 透气 品牌: Under Armour\",\"price\":1.0,\"stock\":1,\"category\":\"鞋\"},"
+                + "{\"id\":\"2\",\"name\":\"跑鞋\",\"description\":\"品牌: Under Armour\",\"price\":1.0,\"stock\":1,\"category\":\"鞋\"},"
+                // 品牌在前且含空格：名称中只有一种可能时拆分，否则保持不变
+                + "{\"id\":\"3\",\"name\":\"Apple Pro 降噪\",\"description\":\"品牌: Apple 性价比之选\",\"price\":1.0,\"stock\":1,\"category\":\"耳机\"},"
+                + "{\"id\":\"4\",\"name\":\"Under Armour 跑鞋\",\"description\":\"品牌: Under Armour 轻量\",\"price\":1.0,\"stock\":1,\"category\":\"鞋\"}"
+                + "]").getBytes("UTF-8"));
+        productService = new ProductService(optionsFor("legacy.json"));
+        
+        assertEquals("Under Armour", productService.getProductById("1").getBrand());
+        assertEquals("轻量 透气", productService.getProductById("1").getDescription());
+        // "品牌: Under Armour" 也可能是品牌 Under 加描述 Armour，无法确定
+        assertNull(productService.getProductById("2").getBrand());
+        assertEquals("品牌: Under Armour", productService.getProductById("2").getDescription());
+        assertEquals("Apple", productService.getProductById("3").getBrand());
+        assertEquals("性价比之选", productService.getProductById("3").getDescription());
+        // 名称以 "Under" 和 "Under Armour" 开头都成立，品牌边界不唯一
+        assertNull(productService.getProductById("4").getBrand());
+        assertEquals("品牌: Under Armour 轻量", productService.getProductById("4").getDescription());
+    }
+    
+    @Test
+    void testSnapshotMode() throws Exception {
+        productService.close();
+        options.setMode(PersistenceMode.SNAPSHOT);
+        options.setDataFile(tempDir.resolve("snapshot.json").toString());
+        productService = new ProductService(options);
+        
+        productService.addProduct(new Product("1", "测试产品", "测试产品描述", 100.0, 10, "测试分类"));
+        assertTrue(Files.exists(tempDir.resolve("snapshot.json")));
+        assertFalse(Files.exists(tempDir.resolve("snapshot.json.journal.000001")));
+    }
+    
+    @Test
+    void testFailedFlushIsNotAcknowledged() throws Exception {
+        productService.close();
+        options.setMode(PersistenceMode.SNAPSHOT);
+        options.setDataFile(tempDir.resolve("snapshot.json").toString());
+        productService = new ProductService(options);
+        
+        // 数据文件的位置被非空目录占据，写入快照失败
+        Files.createDirectories(tempDir.resolve("snapshot.json"));
+        Files.createFile(tempDir.resolve("snapshot.json").resolve("keep"));
+        assertThrows(PersistenceException.class,
+                () -> productService.addProduct(new Product("1", "测试产品", "测试产品描述", 100.0, 10, "测试分类")));
+        
+        // 写入失败后不再接受修改，即使文件已经可以写入，也不把未保存的修改写入快照
+        Files.delete(tempDir.resolve("snapshot.json").resolve("keep"));
+        Files.delete(tempDir.resolve("snapshot.json"));
+        assertThrows(PersistenceException.class,
+                () -> productService.addProduct(new Product("2", "测试产品", "测试产品描述", 100.0, 10, "测试分类")));
+        assertNull(productService.getProductById("2"));
+        assertThrows(PersistenceException.class, () -> productService.checkpoint());
+        productService.close();
+        
+        // 重启后从文件恢复，失败的修改不存在
+        productService = new ProductService(options);
+        assertNull(productService.getProductById("1"));
+        assertTrue(productService.addProduct(new Product("2", "测试产品", "测试产品描述", 100.0, 10, "测试分类")));
+    }
+    
+    @Test
+    void testColumnarStoreMatchesRowScan() {
+        ProductService columnar = new ProductService(optionsFor("columnar.json"), 0, true);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Product product = new Product("P" + i, "产品" + i, "描述", (double) i, i % 10, i % 2 == 0 ? "手机" : "电脑");
+                productService.addProduct(product);
+                columnar.addProduct(new Product(product));
+            }
+            List<String> ids = Arrays.asList("P0", "P2", "P4", "P999");
+            productService.batchUpdatePrice(ids, 1000.0);
+            columnar.batchUpdatePrice(ids, 1000.0);
+            productService.deleteProduct("P6");
+            columnar.deleteProduct("P6");
+            
+            QueryPlan plan = columnar.planSearch("产品1", "手机", 100.0, null);
+            assertEquals(QueryPlan.Strategy.COLUMN_SCAN, plan.getStrategy());
+            assertEquals(productService.searchProducts("产品1", "手机", 100.0, null).size(),
+                    columnar.searchProducts(plan).size());
+            // 只取出了分类和价格都满足条件的行
+            assertEquals(453, plan.getExaminedRows());
+            assertEquals(productService.listProducts(50, null, SortKey.ID, false).getItems(),
+                    columnar.listProducts(50, null, SortKey.ID, false).getItems());
+            
+            ProductStats expected = productService.getProductStats("手机", null, 1500.0);
+            ProductStats actual = columnar.getProductStats("手机", null, 1500.0);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getTotalStock(), actual.getTotalStock());
+            assertEquals(expected.getMaxPrice(), actual.getMaxPrice());
+            assertEquals(expected.getInventoryValue(), actual.getInventoryValue(), 1e-6);
+            assertEquals(1004.0, actual.getMaxPrice());
+        } finally {
+            columnar.close();
+        }
+    }
+}
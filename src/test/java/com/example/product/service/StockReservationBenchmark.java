@@ -0,0 +1,155 @@
+package com.example.product.service;
+
+import com.example.product.model.Product;
+import com.example.product.persistence.Durability;
+import com.example.product.persistence.PersistenceOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 单个热点产品上的库存操作吞吐量：64 个线程同时预占/释放、扣减到售罄，以及用条件更新（读-改-CAS重试）扣减作对比
+ * 不是单元测试，手动运行：
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.example.product.service.StockReservationBenchmark -Dexec.args="64 3"
+ */
+public class StockReservationBenchmark {
+    
+    private static final String SKU = "HOT-1";
+    
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int stock = 100000;
+        
+        Path dir = Files.createTempDirectory("stock-bench");
+        PersistenceOptions options = new PersistenceOptions();
+        options.setDataFile(dir.resolve("products.json").toString());
+        options.setJournalFile(dir.resolve("products.journal").toString());
+        options.setDefaultDurability(Durability.FLUSH);
+        ProductService productService = new ProductService(options);
+        productService.addProduct(new Product(SKU, "秒杀商品", "描述", 99.0, stock, "秒杀"));
+        
+        // 预占 + 释放：只在计数器上 CAS
+        long pairs = runFor(threads, seconds, () -> {
+            if (productService.reserveStock(SKU, 1)) {
+                productService.releaseStock(SKU, 1);
+                return true;
+            }
+            return false;
+        });
+        System.out.printf("预占+释放  %d 线程: %,d 对/秒%n", threads, pairs / seconds);
+        
+        // 扣减到售罄：每次扣减都提交并等待写入日志
+        AtomicLong sold = new AtomicLong();
+        long start = System.nanoTime();
+        runUntilSoldOut(threads, () -> {
+            if (productService.decrementStock(SKU, 1)) {
+                sold.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("扣减到售罄 %d 线程: 售出 %,d / %,d，剩余库存 %d，%,.0f 次/秒%n", threads, sold.get(), stock,
+                productService.getProductById(SKU).getStock(), sold.get() / elapsed);
+        
+        // 对比：客户端式的读-改-条件更新，冲突时重试
+        productService.batchUpdateStock(Arrays.asList(SKU), stock);
+        AtomicLong conflicts = new AtomicLong();
+        long casSold = runFor(threads, seconds, () -> {
+            while (true) {
+                Product current = productService.getProductById(SKU);
+                if (current.getStock() < 1) {
+                    return false;
+                }
+                Product updated = new Product(current);
+                updated.setStock(current.getStock() - 1);
+                if (productService.updateProduct(updated, current.getVersion(), null).isUpdated()) {
+                    return true;
+                }
+                conflicts.incrementAndGet();
+            }
+        });
+        System.out.printf("条件更新扣减 %d 线程: %,d 次/秒，版本冲突重试 %,d 次%n", threads, casSold / seconds, conflicts.get());
+        
+        productService.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+    
+    /**
+     * 操作，返回是否成功
+     */
+    private interface Operation {
+        boolean run();
+    }
+    
+    /**
+     * 多个线程同时反复执行操作，返回成功的次数
+     */
+    private static long runFor(int threads, int seconds, Operation operation) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong succeeded = new AtomicLong();
+        List<Thread> workers = start(threads, () -> {
+            long count = 0;
+            while (running.get()) {
+                if (operation.run()) {
+                    count++;
+                }
+            }
+            succeeded.addAndGet(count);
+        });
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return succeeded.get();
+    }
+    
+    /**
+     * 多个线程同时反复执行操作，直到所有线程都遇到失败（售罄）
+     */
+    private static void runUntilSoldOut(int threads, Operation operation) throws InterruptedException {
+        List<Thread> workers = start(threads, () -> {
+            while (operation.run()) {
+                // 继续抢购
+            }
+        });
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+    
+    private static List<Thread> start(int threads, Runnable body) {
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                body.run();
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        ready.countDown();
+        return workers;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.product.store;
+
+import com.example.product.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductStore单元测试类
+ */
+class ProductStoreTest {
+    
+    private static Product product(String id, double price) {
+        return new Product(id, "产品" + id, "描述", price, 10, "分类");
+    }
+    
+    @Test
+    void testChangesVisibleOnlyAfterPublish() {
+        ProductStore store = new ProductStore();
+        store.put(1, product("1", 10.0));
+        store.put(1, product("2", 20.0));
+        
+        assertNull(store.get("1"));
+        assertEquals(0, store.size());
+        assertNotNull(store.latest("1"));
+        
+        store.publish(1);
+        assertEquals(10.0, store.get("1").getPrice());
+        assertEquals(2, store.size());
+        assertEquals(1L, store.get("1").getVersion());
+    }
+    
+    @Test
+    void testSnapshotIsolation() {
+        ProductStore store = new ProductStore();
+        store.load(product("1", 10.0));
+        store.load(product("2", 20.0));
+        store.publish(0);
+        
+        try (StoreSnapshot snapshot = store.snapshot()) {
+            // 一次提交同时修改两个产品并删除其中一个
+            store.put(1, product("1", 11.0));
+            store.put(1, product("3", 30.0));
+            store.remove(1, "2");
+            store.publish(1);
+            
+            assertEquals(0, snapshot.getSeq());
+            assertEquals(2, snapshot.size());
+            Map<String, Double> prices = new HashMap<>();
+            for (Product product : snapshot) {
+                prices.put(product.getId(), product.getPrice());
+            }
+            assertEquals(2, prices.size());
+            assertEquals(10.0, prices.get("1"));
+            assertEquals(20.0, prices.get("2"));
+            assertNull(snapshot.get("3"));
+            
+            assertEquals(11.0, store.get("1").getPrice());
+            assertNull(store.get("2"));
+            assertEquals(2, store.size());
+        }
+    }
+    
+    @Test
+    void testOldVersionsPrunedAfterSnapshotClosed() {
+        ProductStore store = new ProductStore();
+        store.put(1, product("1", 10.0));
+        store.publish(1);
+        
+        StoreSnapshot snapshot = store.snapshot();
+        store.put(2, product("1", 12.0));
+        store.remove(3, "1");
+        store.publish(3);
+        assertEquals(10.0, snapshot.get("1").getPrice());
+        assertNotNull(store.head("1"));
+        
+        snapshot.close();
+        snapshot.close();
+        assertEquals(0, store.getActiveSnapshotCount());
+        // 删除标记对所有读取方都可见后连同旧版本一起回收
+        assertNull(store.head("1"));
+        assertNull(store.get("1"));
+        
+        store.put(4, product("1", 14.0));
+        store.publish(4);
+        assertEquals(14.0, store.get("1").getPrice());
+        assertEquals(1, store.size());
+    }
+    
+    @Test
+    void testStoredProductsAreImmutable() {
+        ProductStore store = new ProductStore();
+        Product original = product("1", 10.0);
+        store.put(1, original);
+        store.publish(1);
+        
+        // 存入后修改原对象不影响存储中的版本
+        original.setPrice(99.0);
+        Product stored = store.get("1");
+        assertEquals(10.0, stored.getPrice());
+        assertEquals(original, stored);
+        assertThrows(UnsupportedOperationException.class, () -> stored.setPrice(1.0));
+        
+        Product copy = new Product(stored);
+        copy.setPrice(1.0);
+        assertEquals(10.0, store.get("1").getPrice());
+    }
+}
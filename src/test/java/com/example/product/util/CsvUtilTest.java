@@ -0,0 +1,121 @@
+package com.example.product.util;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CsvUtil单元测试类
+ */
+class CsvUtilTest {
+    
+    private List<ExcelProduct> read(String csv) throws Exception {
+        List<ExcelProduct> products = new ArrayList<>();
+        int count = CsvUtil.readProductsFromCsv(
+                Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))), products::add);
+        assertEquals(products.size(), count);
+        return products;
+    }
+    
+    @Test
+    void testReadColumnMapping() throws Exception {
+        List<ExcelProduct> products = read("\uFEFFID,名称,品牌,分类,价格,库存,描述\r\n"
+                + "1001,OnePlus 相机,OnePlus,相机,10997.39,416,专业级设备\r\n"
+                + "\r\n"
+                + ",Apple Pro 降噪,,,232.89,,\r\n");
+        
+        assertEquals(2, products.size());
+        ExcelProduct first = products.get(0);
+        assertEquals(2, first.getRowNumber());
+        assertEquals("1001", first.getId());
+        assertEquals("OnePlus 相机", first.getName());
+        assertEquals("OnePlus", first.getBrand());
+        assertEquals("专业级设备", first.getDescription());
+        assertEquals("相机", first.getCategory());
+        assertEquals(10997.39, first.getPrice());
+        assertEquals(416, first.getStock());
+        
+        ExcelProduct sparse = products.get(1);
+        assertEquals(4, sparse.getRowNumber());
+        assertNull(sparse.getId());
+        assertEquals(232.89, sparse.getPrice());
+        assertNull(sparse.getStock());
+    }
+    
+    @Test
+    void testReadQuotedFields() throws Exception {
+        List<ExcelProduct> products = read("ID,名称,品牌,分类,价格,库存,描述\n"
+                + "P1,\"相机, 单反\",,相机,1,2,\"第一行\n第二行 \"\"限量\"\"\"\n"
+                + "P2,耳机,,耳机,3,4,无换行结尾");
+        
+        assertEquals(2, products.size());
+        assertEquals("相机, 单反", products.get(0).getName());
+        assertEquals("第一行\n第二行 \"限量\"", products.get(0).getDescription());
+        // 引号内的换行不影响下一条记录的行号
+        assertEquals(3, products.get(1).getRowNumber());
+        assertEquals("无换行结尾", products.get(1).getDescription());
+    }
+    
+    @Test
+    void testWriteEscapesFields() throws Exception {
+        Product plain = new Product("P1", "耳机", "降噪", 10000000.0, 5, "音频");
+        plain.setBrand("Sony");
+        Product quoted = new Product("P2", "相机, 单反", "说明 \"新款\"\n第二行", 99.5, null, "相机");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        int count = CsvUtil.writeProductsToCsv(Arrays.asList(plain, quoted), Channels.newChannel(out));
+        
+        assertEquals(2, count);
+        assertEquals("ID,名称,描述,价格,库存,分类,品牌\n"
+                + "P1,耳机,降噪,10000000,5,音频,Sony\n"
+                + "P2,\"相机, 单反\",\"说明 \"\"新款\"\"\n第二行\",99.5,,相机,\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void testReadMapsColumnsByHeaderName() throws Exception {
+        List<ExcelProduct> products = read("价格,ID,备注,描述,名称,分类\n"
+                + "99.5,P1,忽略,降噪,耳机,音频\n");
+        
+        assertEquals(1, products.size());
+        ExcelProduct product = products.get(0);
+        assertEquals("P1", product.getId());
+        assertEquals("耳机", product.getName());
+        assertEquals("降噪", product.getDescription());
+        assertEquals("音频", product.getCategory());
+        assertEquals(99.5, product.getPrice());
+        // 文件中没有的列为空
+        assertNull(product.getBrand());
+        assertNull(product.getStock());
+    }
+    
+    @Test
+    void testExportedFileCanBeImported() throws Exception {
+        Product product = new Product("P1", "相机, 单反", "说明 \"新款\"", 1999.0, 3, "相机");
+        product.setBrand("Canon");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvUtil.writeProductsToCsv(Arrays.asList(product), Channels.newChannel(out));
+        
+        List<ExcelProduct> products = read(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        
+        assertEquals(1, products.size());
+        ExcelProduct imported = products.get(0);
+        assertEquals("P1", imported.getId());
+        assertEquals("相机, 单反", imported.getName());
+        assertEquals("说明 \"新款\"", imported.getDescription());
+        assertEquals(1999.0, imported.getPrice());
+        assertEquals(3, imported.getStock());
+        assertEquals("相机", imported.getCategory());
+        assertEquals("Canon", imported.getBrand());
+    }
+}
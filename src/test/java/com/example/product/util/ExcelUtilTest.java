@@ -0,0 +1,164 @@
+package com.example.product.util;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExcelUtil单元测试类
+ */
+class ExcelUtilTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testStreamingReaderColumnMapping() throws Exception {
+        Path file = tempDir.resolve("import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue("ID");
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue(1001);
+            row.createCell(1).setCellValue("OnePlus 相机");
+            row.createCell(2).setCellValue("OnePlus");
+            row.createCell(3).setCellValue("相机");
+            row.createCell(4).setCellValue(10997.39);
+            row.createCell(5).setCellValue(416);
+            row.createCell(6).setCellValue("专业级设备");
+            // 空行之后的稀疏行：只有名称和价格（文本）
+            Row sparse = sheet.createRow(3);
+            sparse.createCell(1).setCellValue("Apple Pro 降噪");
+            sparse.createCell(4).setCellValue("232.89");
+            try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+                workbook.write(out);
+            }
+        }
+        
+        List<ExcelProduct> products = ExcelUtil.readProductsFromExcel(file.toString());
+        
+        assertEquals(2, products.size());
+        ExcelProduct first = products.get(0);
+        assertEquals(2, first.getRowNumber());
+        assertEquals("1001", first.getId());
+        assertEquals("OnePlus 相机", first.getName());
+        assertEquals("OnePlus", first.getBrand());
+        assertEquals("专业级设备", first.getDescription());
+        assertEquals("相机", first.getCategory());
+        assertEquals(10997.39, first.getPrice());
+        assertEquals(416, first.getStock());
+        
+        ExcelProduct second = products.get(1);
+        assertEquals(4, second.getRowNumber());
+        assertNull(second.getId());
+        assertEquals(232.89, second.getPrice());
+        assertNull(second.getStock());
+        assertNull(second.getDescription());
+    }
+    
+    @Test
+    void testFormattedNumericCellsAreReadAsRawValues() throws Exception {
+        Path file = tempDir.resolve("formatted.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue("ID");
+            CellStyle thousands = workbook.createCellStyle();
+            thousands.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+            CellStyle currency = workbook.createCellStyle();
+            currency.setDataFormat(workbook.createDataFormat().getFormat("\"¥\"#,##0.00"));
+            CellStyle percent = workbook.createCellStyle();
+            percent.setDataFormat(workbook.createDataFormat().getFormat("0%"));
+            
+            Row row = sheet.createRow(1);
+            // 常规格式的大整数ID按格式显示时为科学计数法
+            row.createCell(0).setCellValue(123456789012345.0);
+            row.createCell(1).setCellValue("OnePlus 相机");
+            Cell price = row.createCell(4);
+            price.setCellValue(12345.67);
+            price.setCellStyle(thousands);
+            Cell stock = row.createCell(5);
+            stock.setCellValue(1500);
+            stock.setCellStyle(thousands);
+            
+            Row other = sheet.createRow(2);
+            other.createCell(1).setCellValue("Apple Pro 降噪");
+            Cell otherPrice = other.createCell(4);
+            otherPrice.setCellValue(1999.5);
+            otherPrice.setCellStyle(currency);
+            Cell otherStock = other.createCell(5);
+            otherStock.setCellValue(3);
+            otherStock.setCellStyle(percent);
+            try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+                workbook.write(out);
+            }
+        }
+        
+        List<ExcelProduct> products = ExcelUtil.readProductsFromExcel(file.toString());
+        
+        assertEquals(2, products.size());
+        assertEquals("123456789012345", products.get(0).getId());
+        assertEquals(12345.67, products.get(0).getPrice());
+        assertEquals(1500, products.get(0).getStock());
+        assertEquals(1999.5, products.get(1).getPrice());
+        assertEquals(3, products.get(1).getStock());
+    }
+    
+    @Test
+    void testMissingHeaderIsRejected() throws Exception {
+        Path file = tempDir.resolve("import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet().createRow(2).createCell(0).setCellValue("P1");
+            try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+                workbook.write(out);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> ExcelUtil.readProductsFromExcel(file.toString()));
+    }
+    
+    @Test
+    void testStreamingExport() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            products.add(new Product("P" + i, "OnePlus 相机 " + i, i == 0 ? longText() : "品牌: OnePlus 专业级设备",
+                    100.0 + i, i, "相机"));
+        }
+        Path file = tempDir.resolve("export.xlsx");
+        ExcelUtil.writeProductsToExcel(products, file.toString());
+        
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file.toFile())) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(1000, sheet.getLastRowNum());
+            assertEquals("ID", sheet.getRow(0).getCell(0).getStringCellValue());
+            Row last = sheet.getRow(1000);
+            assertEquals("P999", last.getCell(0).getStringCellValue());
+            assertEquals(1099.0, last.getCell(3).getNumericCellValue());
+            assertEquals(999, (int) last.getCell(4).getNumericCellValue());
+            assertEquals("相机", last.getCell(5).getStringCellValue());
+            // 个别超长描述不会把描述列撑到上限
+            int descriptionChars = sheet.getColumnWidth(2) / 256;
+            assertTrue(descriptionChars >= "品牌: OnePlus 专业级设备".length() && descriptionChars < 80,
+                    "描述列宽: " + descriptionChars);
+        }
+    }
+    
+    private static String longText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            sb.append("超长的产品描述");
+        }
+        return sb.toString();
+    }
+}
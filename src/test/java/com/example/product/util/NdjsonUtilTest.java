@@ -0,0 +1,56 @@
+package com.example.product.util;
+
+import com.example.product.model.ExcelProduct;
+import com.example.product.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NdjsonUtil单元测试类
+ */
+class NdjsonUtilTest {
+    
+    @Test
+    void testRoundTrip() throws Exception {
+        List<Product> products = Arrays.asList(
+                new Product("P1", "耳机", "降噪", 99.5, 5, "音频"),
+                new Product("P2", "相机", "说明\n第二行", 1999.0, 0, "相机"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        assertEquals(2, NdjsonUtil.writeProductsToNdjson(products, Channels.newChannel(out)));
+        String ndjson = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(2, ndjson.split("\n").length);
+        assertTrue(ndjson.startsWith("{") && ndjson.contains("\n{") && ndjson.endsWith("}\n"));
+        
+        List<ExcelProduct> read = new ArrayList<>();
+        NdjsonUtil.readProductsFromNdjson(
+                Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), read::add);
+        assertEquals(2, read.size());
+        assertEquals("P2", read.get(1).getId());
+        assertEquals("说明\n第二行", read.get(1).getDescription());
+        assertEquals(1999.0, read.get(1).getPrice());
+        assertEquals(2, read.get(1).getRowNumber());
+    }
+    
+    @Test
+    void testRejectsNonObjectLine() {
+        String ndjson = "{\"id\":\"P1\",\"name\":\"耳机\",\"unknown\":1}\n[1,2]\n";
+        List<ExcelProduct> read = new ArrayList<>();
+        
+        IOException e = assertThrows(IOException.class, () -> NdjsonUtil.readProductsFromNdjson(
+                Channels.newChannel(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))), read::add));
+        
+        assertEquals(1, read.size());
+        assertTrue(e.getMessage().contains("第2行"));
+    }
+}